@@ -0,0 +1,130 @@
+package menu.sim;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import menu.sim.Food.FoodType;
+import menu.sim.Food.MealType;
+
+/**
+ * Streams the detailed results of a simulation to the four CSV export files.
+ *
+ * Rows are written as soon as each week is complete and the files are flushed after every
+ * week, so memory use does not grow with the number of weeks and the weeks completed so far
+ * are on disk even if the run dies.
+ */
+class CSVExporter implements Closeable {
+
+	private static final Day[] DAYS = Day.values();
+	private static final MealType[] MEAL_TYPES = MealType.values();
+
+	private Writer mealsWriter, plannersWriter, pantriesWriter, satisfactionWriter;
+	private StringBuilder row = new StringBuilder();
+
+	/**
+	 * CSV exporter constructor; creates the files and writes their headers
+	 *
+	 * @param mealsPath         path of the daily meals file
+	 * @param plannersPath      path of the weekly planners file
+	 * @param pantriesPath      path of the weekly pantries file
+	 * @param satisfactionPath  path of the weekly satisfactions file
+	 *
+	 */
+	CSVExporter(String mealsPath, String plannersPath, String pantriesPath, String satisfactionPath) throws IOException {
+		try {
+			mealsWriter = new BufferedWriter(new FileWriter(mealsPath));
+			plannersWriter = new BufferedWriter(new FileWriter(plannersPath));
+			pantriesWriter = new BufferedWriter(new FileWriter(pantriesPath));
+			satisfactionWriter = new BufferedWriter(new FileWriter(satisfactionPath));
+		} catch(IOException e) {
+			close();
+			throw e;
+		}
+
+		mealsWriter.write("Day,Member,Meal Type,Meal\n");
+		plannersWriter.write("Week,Day,Member,Meal Type,Meal\n");
+		pantriesWriter.write("Week,Meal Type,Meal,Quantity\n");
+		satisfactionWriter.write("Week,Member,Satisfaction,Average Satisfaction\n");
+	}
+
+	/**
+	 * Write the rows of a completed week to every file and flush them
+	 *
+	 * @param week           week number
+	 * @param familyMembers  all family members
+	 * @param planner        final planner of the week
+	 * @param mealHistory    history including the week
+	 *
+	 */
+	void exportWeek(int week, List<FamilyMember> familyMembers, Planner planner, MealHistory mealHistory) throws IOException {
+		for(Day day : DAYS) {
+			int dayNumber = (week - 1) * DAYS.length + day.ordinal() + 1;
+			for(MemberName memberName : MemberName.values()) {
+				if(!planner.hasMember(day, memberName))
+					continue;
+				for(MealType mealType : MEAL_TYPES) {
+					if(!planner.hasMeal(day, memberName, mealType))
+						continue;
+					String meal = getName(planner.getMeal(day, memberName, mealType));
+
+					row.setLength(0);
+					row.append(week).append(',').append(day.name()).append(',').append(memberName.name()).append(',')
+						.append(mealType.name()).append(',').append(meal).append('\n');
+					plannersWriter.append(row);
+
+					row.setLength(0);
+					row.append(dayNumber).append(',').append(memberName.name()).append(',')
+						.append(mealType.name()).append(',').append(meal).append('\n');
+					mealsWriter.append(row);
+				}
+			}
+		}
+
+		Pantry pantry = mealHistory.getPantry(week);
+		for(FoodType foodType : FoodType.values()) {
+			row.setLength(0);
+			row.append(week).append(',').append(Food.getMealType(foodType).name()).append(',').append(foodType.name())
+				.append(',').append(pantry.getNumAvailableMeals(foodType)).append('\n');
+			pantriesWriter.append(row);
+		}
+
+		for(FamilyMember familyMember : familyMembers) {
+			MemberName memberName = familyMember.getName();
+			row.setLength(0);
+			row.append(week).append(',').append(memberName.name()).append(',')
+				.append(mealHistory.getSatisfaction(week, memberName).doubleValue()).append(',')
+				.append(mealHistory.getAverageSatisfaction(week, memberName).doubleValue()).append('\n');
+			satisfactionWriter.append(row);
+		}
+
+		mealsWriter.flush();
+		plannersWriter.flush();
+		pantriesWriter.flush();
+		satisfactionWriter.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException exception = null;
+		for(Writer writer : new Writer[]{mealsWriter, plannersWriter, pantriesWriter, satisfactionWriter}) {
+			if(writer == null)
+				continue;
+			try {
+				writer.close();
+			} catch(IOException e) {
+				if(exception == null)
+					exception = e;
+			}
+		}
+		if(exception != null)
+			throw exception;
+	}
+
+	private static String getName(FoodType foodType) {
+		return foodType == null ? "" : foodType.name();
+	}
+}
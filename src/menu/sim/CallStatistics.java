@@ -0,0 +1,194 @@
+package menu.sim;
+
+import java.util.Arrays;
+
+/**
+ * Latency, CPU time and allocation of the calls made to one player method.
+ *
+ * CPU time and allocated bytes are -1 for a call if the JVM cannot measure them, and such calls
+ * are left out of their totals and means.
+ */
+public class CallStatistics {
+
+	private String name;
+	private long[] latencies = new long[64], cpuTimes = new long[64], allocatedBytes = new long[64];
+	private int numCalls = 0, numTimeouts = 0, numFailures = 0;
+	private int numCpuTimedCalls = 0, numAllocationMeasuredCalls = 0;
+	private long totalLatency = 0, totalCpuTime = 0, totalAllocatedBytes = 0;
+	private long[] sortedLatencies;
+
+	/**
+	 * Call statistics constructor
+	 *
+	 * @param name  name of the player method
+	 *
+	 */
+	public CallStatistics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Record a call
+	 *
+	 * @param latency         wall-clock time of the call, in nanoseconds
+	 * @param cpuTime         CPU time of the call, in nanoseconds, or -1 if not measured
+	 * @param allocatedBytes  bytes allocated by the call, or -1 if not measured
+	 * @param timedOut        whether the call timed out
+	 * @param failed          whether the call ended with an exception other than a timeout
+	 *
+	 */
+	void record(long latency, long cpuTime, long allocatedBytes, boolean timedOut, boolean failed) {
+		if(numCalls == latencies.length) {
+			latencies = Arrays.copyOf(latencies, 2 * latencies.length);
+			cpuTimes = Arrays.copyOf(cpuTimes, latencies.length);
+			this.allocatedBytes = Arrays.copyOf(this.allocatedBytes, latencies.length);
+		}
+		latencies[numCalls] = latency;
+		cpuTimes[numCalls] = cpuTime;
+		this.allocatedBytes[numCalls] = allocatedBytes;
+		numCalls++;
+		totalLatency += latency;
+		if(cpuTime >= 0) {
+			totalCpuTime += cpuTime;
+			numCpuTimedCalls++;
+		}
+		if(allocatedBytes >= 0) {
+			totalAllocatedBytes += allocatedBytes;
+			numAllocationMeasuredCalls++;
+		}
+		if(timedOut)
+			numTimeouts++;
+		if(failed)
+			numFailures++;
+		sortedLatencies = null;
+	}
+
+	/**
+	 * Record every call of other statistics
+	 *
+	 * @param statistics  statistics of calls to add
+	 *
+	 */
+	void recordAll(CallStatistics statistics) {
+		for(int call = 0; call < statistics.numCalls; call++)
+			record(statistics.latencies[call], statistics.cpuTimes[call], statistics.allocatedBytes[call], false, false);
+		numTimeouts += statistics.numTimeouts;
+		numFailures += statistics.numFailures;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getNumCalls() {
+		return numCalls;
+	}
+
+	public int getNumTimeouts() {
+		return numTimeouts;
+	}
+
+	public int getNumFailures() {
+		return numFailures;
+	}
+
+	/**
+	 * Latency of a call, in nanoseconds
+	 *
+	 * @param call  call number, starting at 1
+	 * @return      latency of the call
+	 *
+	 */
+	public long getLatency(int call) {
+		if(call < 1 || call > numCalls)
+			throw new IndexOutOfBoundsException("Call " + call + " has not been recorded!");
+		return latencies[call - 1];
+	}
+
+	/**
+	 * CPU time of a call, in nanoseconds
+	 *
+	 * @param call  call number, starting at 1
+	 * @return      CPU time of the call, or -1 if not measured
+	 *
+	 */
+	public long getCpuTime(int call) {
+		getLatency(call);
+		return cpuTimes[call - 1];
+	}
+
+	/**
+	 * Bytes allocated by a call
+	 *
+	 * @param call  call number, starting at 1
+	 * @return      bytes allocated by the call, or -1 if not measured
+	 *
+	 */
+	public long getAllocatedBytes(int call) {
+		getLatency(call);
+		return allocatedBytes[call - 1];
+	}
+
+	/**
+	 * Total CPU time of the calls, in nanoseconds
+	 */
+	public long getTotalCpuTime() {
+		return totalCpuTime;
+	}
+
+	/**
+	 * Mean CPU time of the calls, in nanoseconds
+	 */
+	public double getMeanCpuTime() {
+		return numCpuTimedCalls == 0 ? Double.NaN : (double) totalCpuTime / numCpuTimedCalls;
+	}
+
+	public long getTotalAllocatedBytes() {
+		return totalAllocatedBytes;
+	}
+
+	public double getMeanAllocatedBytes() {
+		return numAllocationMeasuredCalls == 0 ? Double.NaN : (double) totalAllocatedBytes / numAllocationMeasuredCalls;
+	}
+
+	/**
+	 * Mean latency of the calls, in nanoseconds
+	 */
+	public double getMeanLatency() {
+		return numCalls == 0 ? Double.NaN : (double) totalLatency / numCalls;
+	}
+
+	/**
+	 * Latency percentile of the calls, using the nearest rank
+	 *
+	 * @param percentile  percentile between 0 and 100, inclusive
+	 * @return            latency at the given percentile, in nanoseconds, or -1 if there are no calls
+	 *
+	 */
+	public long getPercentileLatency(double percentile) {
+		if(percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentiles must be between 0 and 100, inclusive.");
+		if(numCalls == 0)
+			return -1;
+
+		if(sortedLatencies == null) {
+			sortedLatencies = Arrays.copyOf(latencies, numCalls);
+			Arrays.sort(sortedLatencies);
+		}
+		int rank = (int) Math.ceil(percentile / 100 * numCalls);
+		return sortedLatencies[Math.max(rank, 1) - 1];
+	}
+
+	public long getMaxLatency() {
+		return getPercentileLatency(100);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d calls (%d timed out, %d failed), mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms, "
+				+ "CPU time %.3f ms total, %.3f ms mean, allocated %.1f MB total, %.1f KB mean",
+				name, numCalls, numTimeouts, numFailures, getMeanLatency() / 1e6, getPercentileLatency(50) / 1e6,
+				getPercentileLatency(99) / 1e6, getMaxLatency() / 1e6, totalCpuTime / 1e6, getMeanCpuTime() / 1e6,
+				totalAllocatedBytes / 1048576.0, getMeanAllocatedBytes() / 1024);
+	}
+}
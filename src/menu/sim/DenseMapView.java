@@ -0,0 +1,238 @@
+package menu.sim;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * A map view over data stored by index in primitive arrays.
+ *
+ * Keys are mapped to indices from 0 up to a (possibly growing) bound; the view reads which
+ * indices are present and decodes their values on demand, so nothing is copied or boxed until
+ * a value is actually read. A view is read-only unless it is made {@link #writable writable},
+ * in which case putting and removing keys encodes the change into the arrays.
+ */
+class DenseMapView<K, V> extends AbstractMap<K, V> {
+
+	private final IntSupplier numIndices;
+	private final IntFunction<K> keys;
+	private final ToIntFunction<Object> indices;
+	private final IntPredicate present;
+	private final IntFunction<V> values;
+	private ObjIntConsumer<V> store;
+	private IntConsumer clear;
+
+	/**
+	 * Dense map view constructor
+	 *
+	 * @param numIndices  current number of indices
+	 * @param keys        key at an index
+	 * @param indices     index of a key, or -1 if it cannot be a key
+	 * @param present     whether an index currently holds a value
+	 * @param values      decoded value at a present index
+	 *
+	 */
+	DenseMapView(IntSupplier numIndices, IntFunction<K> keys, ToIntFunction<Object> indices,
+			IntPredicate present, IntFunction<V> values) {
+		this.numIndices = numIndices;
+		this.keys = keys;
+		this.indices = indices;
+		this.present = present;
+		this.values = values;
+	}
+
+	/**
+	 * Create a view keyed by the constants of an enum
+	 *
+	 * @param constants  all constants of the enum, in ordinal order
+	 * @param present    whether the constant with an ordinal holds a value
+	 * @param values     decoded value for an ordinal
+	 * @return           view of the values
+	 *
+	 */
+	static <E extends Enum<E>, V> DenseMapView<E, V> ofEnum(E[] constants, IntPredicate present, IntFunction<V> values) {
+		Class<?> enumClass = constants.getClass().getComponentType();
+		return new DenseMapView<>(() -> constants.length, index -> constants[index],
+				key -> enumClass.isInstance(key) ? ((Enum<?>) key).ordinal() : -1, present, values);
+	}
+
+	/**
+	 * Create a view keyed by the numbers 1 to a (possibly growing) bound
+	 *
+	 * @param numKeys  current highest key
+	 * @param present  whether a key holds a value
+	 * @param values   decoded value for a key
+	 * @return         view of the values
+	 *
+	 */
+	static <V> DenseMapView<Integer, V> ofNumbers(IntSupplier numKeys, IntPredicate present, IntFunction<V> values) {
+		return new DenseMapView<>(numKeys, index -> index + 1,
+				key -> key instanceof Integer && (Integer) key >= 1 ? (Integer) key - 1 : -1,
+				index -> present.test(index + 1), index -> values.apply(index + 1));
+	}
+
+	/**
+	 * Make the view write through to the data it reads
+	 *
+	 * @param store  encodes a value at an index, which then holds a value
+	 * @param clear  clears an index, which then holds no value
+	 * @return       this view
+	 *
+	 */
+	DenseMapView<K, V> writable(ObjIntConsumer<V> store, IntConsumer clear) {
+		this.store = store;
+		this.clear = clear;
+		return this;
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		int numIndices = this.numIndices.getAsInt();
+		for(int index = 0; index < numIndices; index++)
+			if(present.test(index))
+				size++;
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		int index = indices.applyAsInt(key);
+		return index >= 0 && index < numIndices.getAsInt() && present.test(index);
+	}
+
+	@Override
+	public V get(Object key) {
+		return containsKey(key) ? values.apply(indices.applyAsInt(key)) : null;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		if(store == null)
+			throw new UnsupportedOperationException();
+		int index = indices.applyAsInt(key);
+		if(index < 0 || index >= numIndices.getAsInt())
+			throw new IllegalArgumentException("Invalid key " + key + "!");
+		V previousValue = present.test(index) ? values.apply(index) : null;
+		store.accept(value, index);
+		return previousValue;
+	}
+
+	@Override
+	public V remove(Object key) {
+		if(clear == null)
+			throw new UnsupportedOperationException();
+		if(!containsKey(key))
+			return null;
+		int index = indices.applyAsInt(key);
+		V previousValue = values.apply(index);
+		clear.accept(index);
+		return previousValue;
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return new AbstractSet<Entry<K, V>>() {
+			@Override
+			public int size() {
+				return DenseMapView.this.size();
+			}
+
+			@Override
+			public Iterator<Entry<K, V>> iterator() {
+				return new Iterator<Entry<K, V>>() {
+					private int nextIndex = findPresent(0);
+					private int lastIndex = -1;
+
+					@Override
+					public boolean hasNext() {
+						return nextIndex >= 0;
+					}
+
+					@Override
+					public Entry<K, V> next() {
+						if(!hasNext())
+							throw new NoSuchElementException();
+						lastIndex = nextIndex;
+						nextIndex = findPresent(lastIndex + 1);
+						return new IndexEntry(lastIndex);
+					}
+
+					@Override
+					public void remove() {
+						if(clear == null)
+							throw new UnsupportedOperationException();
+						if(lastIndex < 0)
+							throw new IllegalStateException();
+						clear.accept(lastIndex);
+						lastIndex = -1;
+					}
+				};
+			}
+		};
+	}
+
+	// Entry that only decodes its value when asked for it, so iterating the keys stays cheap
+	private class IndexEntry implements Entry<K, V> {
+
+		private final int index;
+
+		IndexEntry(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public K getKey() {
+			return keys.apply(index);
+		}
+
+		@Override
+		public V getValue() {
+			return values.apply(index);
+		}
+
+		@Override
+		public V setValue(V value) {
+			if(store == null)
+				throw new UnsupportedOperationException();
+			V previousValue = getValue();
+			store.accept(value, index);
+			return previousValue;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Entry))
+				return false;
+			Entry<?, ?> entry = (Entry<?, ?>) o;
+			return Objects.equals(getKey(), entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+	private int findPresent(int fromIndex) {
+		int numIndices = this.numIndices.getAsInt();
+		for(int index = fromIndex; index < numIndices; index++)
+			if(present.test(index))
+				return index;
+		return -1;
+	}
+}
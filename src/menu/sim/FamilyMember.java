@@ -68,5 +68,14 @@ public class FamilyMember implements Serializable {
 	
 	public void setSatisfaction(Double satisfaction) {
 		this.satisfaction = satisfaction;
+	}
+	
+	public FamilyMember clone() {
+		FamilyMember familyMember = new FamilyMember(memberName);
+		familyMember.foodPreferenceMap = new HashMap<>(foodPreferenceMap);
+		for(Day day : assignedMealMap.keySet())
+			familyMember.assignedMealMap.put(day, new HashMap<>(assignedMealMap.get(day)));
+		familyMember.satisfaction = satisfaction;
+		return familyMember;
 	}	
 }
\ No newline at end of file
@@ -0,0 +1,250 @@
+package menu.sim;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import menu.sim.Food.FoodType;
+
+/**
+ * Order of foods for one meal type, stored as segments of the same food ordered several times
+ * in a row.
+ *
+ * The order reads and writes like a list with one entry per meal ordered, but a segment costs
+ * the same whatever its quantity, so ordering a food hundreds of times with
+ * {@link #add(FoodType, int)} adds one segment. Adjacent segments always hold different foods.
+ * Each segment keeps the index where it ends, so an entry is found by binary search.
+ */
+public class FoodOrder extends AbstractList<FoodType> implements RandomAccess, Serializable {
+
+	private static final int INITIAL_SEGMENTS = 8;
+
+	private FoodType[] foods = new FoodType[INITIAL_SEGMENTS];
+	private int[] ends = new int[INITIAL_SEGMENTS];
+	private int numSegments = 0;
+
+	public FoodOrder() {
+	}
+
+	/**
+	 * Create an order with the foods of a collection, in its iteration order
+	 *
+	 * @param foodTypes  foods ordered
+	 *
+	 */
+	public FoodOrder(Collection<? extends FoodType> foodTypes) {
+		if(foodTypes instanceof FoodOrder) {
+			FoodOrder foodOrder = (FoodOrder) foodTypes;
+			foods = Arrays.copyOf(foodOrder.foods, Math.max(foodOrder.numSegments, INITIAL_SEGMENTS));
+			ends = Arrays.copyOf(foodOrder.ends, foods.length);
+			numSegments = foodOrder.numSegments;
+		}
+		else
+			for(FoodType foodType : foodTypes)
+				add(foodType, 1);
+	}
+
+	/**
+	 * Get a list of foods as segments
+	 *
+	 * @param foodTypes  foods ordered
+	 * @return           the list itself if it is already a food order, or else a new food order
+	 *
+	 */
+	static FoodOrder of(List<FoodType> foodTypes) {
+		return foodTypes instanceof FoodOrder ? (FoodOrder) foodTypes : new FoodOrder(foodTypes);
+	}
+
+	/**
+	 * Order a food several times
+	 *
+	 * @param foodType  food to order
+	 * @param quantity  number of meals to order
+	 *
+	 */
+	public void add(FoodType foodType, int quantity) {
+		if(quantity < 0)
+			throw new IllegalArgumentException("The quantity cannot be negative!");
+		if(quantity == 0)
+			return;
+		if(numSegments > 0 && foods[numSegments - 1] == foodType)
+			ends[numSegments - 1] += quantity;
+		else
+			insertSegment(numSegments, foodType, quantity);
+		modCount++;
+	}
+
+	public int getNumSegments() {
+		return numSegments;
+	}
+
+	public FoodType getSegmentFood(int segment) {
+		checkSegment(segment);
+		return foods[segment];
+	}
+
+	public int getSegmentQuantity(int segment) {
+		checkSegment(segment);
+		return ends[segment] - getStart(segment);
+	}
+
+	@Override
+	public int size() {
+		return numSegments == 0 ? 0 : ends[numSegments - 1];
+	}
+
+	@Override
+	public FoodType get(int index) {
+		checkIndex(index, size());
+		return foods[findSegment(index)];
+	}
+
+	@Override
+	public boolean add(FoodType foodType) {
+		add(foodType, 1);
+		return true;
+	}
+
+	@Override
+	public void add(int index, FoodType foodType) {
+		checkIndex(index, size() + 1);
+		int segment = split(index);
+		insertSegment(segment, foodType, 1);
+		merge(segment);
+		modCount++;
+	}
+
+	@Override
+	public FoodType set(int index, FoodType foodType) {
+		checkIndex(index, size());
+		int segment = split(index);
+		split(index + 1);
+		FoodType previousFoodType = foods[segment];
+		foods[segment] = foodType;
+		merge(segment);
+		return previousFoodType;
+	}
+
+	@Override
+	public FoodType remove(int index) {
+		checkIndex(index, size());
+		FoodType foodType = get(index);
+		removeRange(index, index + 1);
+		return foodType;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(foods, 0, numSegments, null);
+		numSegments = 0;
+		modCount++;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		if(fromIndex >= toIndex)
+			return;
+		int fromSegment = split(fromIndex);
+		int toSegment = split(toIndex);
+		int numRemoved = toSegment - fromSegment;
+		System.arraycopy(foods, toSegment, foods, fromSegment, numSegments - toSegment);
+		System.arraycopy(ends, toSegment, ends, fromSegment, numSegments - toSegment);
+		Arrays.fill(foods, numSegments - numRemoved, numSegments, null);
+		numSegments -= numRemoved;
+		for(int segment = fromSegment; segment < numSegments; segment++)
+			ends[segment] -= toIndex - fromIndex;
+		if(fromSegment > 0)
+			merge(fromSegment - 1);
+		modCount++;
+	}
+
+	/**
+	 * Make a segment start at an index, splitting the segment that contains it
+	 *
+	 * @param index  index of an entry, or the size of the order
+	 * @return       segment that starts at the index, or the number of segments for the size
+	 *
+	 */
+	private int split(int index) {
+		if(index == size())
+			return numSegments;
+		int segment = findSegment(index);
+		int start = getStart(segment);
+		if(start == index)
+			return segment;
+		insertEntry(segment, foods[segment], index);
+		return segment + 1;
+	}
+
+	/**
+	 * Join a segment with its neighbors if they hold the same food
+	 */
+	private void merge(int segment) {
+		if(segment + 1 < numSegments && foods[segment] == foods[segment + 1])
+			removeSegment(segment);
+		if(segment > 0 && segment < numSegments && foods[segment - 1] == foods[segment])
+			removeSegment(segment - 1);
+	}
+
+	/**
+	 * Insert a segment before another one, moving the later segments' ends by its quantity
+	 */
+	private void insertSegment(int segment, FoodType foodType, int quantity) {
+		insertEntry(segment, foodType, getStart(segment) + quantity);
+		for(int later = segment + 1; later < numSegments; later++)
+			ends[later] += quantity;
+	}
+
+	/**
+	 * Insert a segment end before another one, without moving any other end
+	 */
+	private void insertEntry(int segment, FoodType foodType, int end) {
+		if(numSegments == foods.length) {
+			foods = Arrays.copyOf(foods, 2 * foods.length);
+			ends = Arrays.copyOf(ends, foods.length);
+		}
+		System.arraycopy(foods, segment, foods, segment + 1, numSegments - segment);
+		System.arraycopy(ends, segment, ends, segment + 1, numSegments - segment);
+		foods[segment] = foodType;
+		ends[segment] = end;
+		numSegments++;
+	}
+
+	/**
+	 * Remove a segment's end, so that the next segment starts where the removed one started
+	 */
+	private void removeSegment(int segment) {
+		System.arraycopy(foods, segment + 1, foods, segment, numSegments - segment - 1);
+		System.arraycopy(ends, segment + 1, ends, segment, numSegments - segment - 1);
+		foods[--numSegments] = null;
+	}
+
+	private int findSegment(int index) {
+		int low = 0, high = numSegments - 1;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(ends[middle] <= index)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	private int getStart(int segment) {
+		return segment == 0 ? 0 : ends[segment - 1];
+	}
+
+	private void checkSegment(int segment) {
+		if(segment < 0 || segment >= numSegments)
+			throw new IndexOutOfBoundsException("Segment " + segment + " is out of bounds for " + numSegments + " segments!");
+	}
+
+	private static void checkIndex(int index, int size) {
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for length " + size + "!");
+	}
+}
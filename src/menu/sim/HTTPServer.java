@@ -2,146 +2,847 @@ package menu.sim;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.*;
 import java.time.format.*;
-import java.nio.channels.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Non-blocking HTTP/1.1 server for the GUI.
+ *
+ * A single selector thread accepts connections, reads requests and writes replies for every
+ * browser tab. Connections are kept alive between requests, and requests pipelined on a
+ * connection are answered in order.
+ *
+ * Files under the statics directory are mapped into memory once, when the server starts, and
+ * served by the selector thread with an ETag made from a hash of their content, so a browser
+ * that has a file can check it with If-None-Match and get a 304 reply without the body. Images
+ * are cached by the browser for a year; the page itself is checked again on every load. Text
+ * files are also kept gzipped for browsers that accept it. data.txt and snapshot.txt are never
+ * cached.
+ *
+ * The simulation publishes the part of the GUI state that never changes once, with
+ * {@link #publishSnapshot(String)}, which is served as snapshot.txt. It then publishes the GUI
+ * state of each week with {@link #publishData(int, String, String)} without waiting for the
+ * browser, and the server keeps the last {@value #HISTORY_SIZE} weeks. Each week is published
+ * twice: as its changes from the week before, and as a full state that stands on its own. A
+ * browser is sent the changes if it asked for the week after the last one it has, and the full
+ * state otherwise, so it can always catch up after weeks were dropped.
+ * A request for data.txt?week=N is answered with week N, or with the earliest week kept after
+ * it if week N was dropped; a request without a week gets the latest one. A request for a week
+ * that has not been published yet waits for it, and later requests on the same connection wait
+ * behind it. A request for snapshot.txt waits for the snapshot in the same way.
+ *
+ * The events path streams the same states as server-sent events over one connection: the
+ * snapshot first, then every week in order from events?week=N, or from the first week, each as
+ * soon as it is published. The week is the event id, so a browser that reconnects resumes after
+ * the last week it received. Events are built from the published states when the connection can
+ * take them, and the next event is only written once the socket has taken the previous one, so
+ * the server never queues events. The page closes its stream while it has enough weeks waiting
+ * to be shown and opens a new one from the next week once it catches up; weeks that are dropped
+ * from the history meanwhile are skipped.
+ */
 public class HTTPServer {
 
-    private ServerSocket socket = null;
-    private Socket connection = null;
-    private byte[] buffer = new byte[8192];
+    public static final String DATA_PATH = "data.txt";
+    public static final String SNAPSHOT_PATH = "snapshot.txt";
+    public static final String EVENTS_PATH = "events";
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_PENDING_RESPONSES = 32;
+    private static final long IDLE_TIMEOUT = 60000;
+    private static final long SELECT_TIMEOUT = 1000;
+    private static final int HISTORY_SIZE = 256;
+    private static final String NO_CACHE = "Cache-Control: no-cache, no-store\r\n";
+    private static final long EVENTS_RETRY_TIME = 1000;
+
+    private Map<String, StaticFile> staticFiles = new HashMap<>();
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private Thread thread;
+    private volatile byte[] snapshot;
+    private NavigableMap<Integer, PublishedWeek> publishedData = new ConcurrentSkipListMap<>();
+    private List<Response> dataRequests = new ArrayList<>();
+    private List<Connection> eventStreams = new ArrayList<>();
+    private volatile boolean hasNewData = false;
+    private volatile boolean closed = false;
+
+    /**
+     * HTTP server constructor
+     *
+     * The server loads the files to serve, then listens on a free port and starts serving right
+     * away.
+     *
+     * @param staticsPath  directory of the files served
+     *
+     */
+    public HTTPServer(String staticsPath) throws IOException {
+        loadStaticFiles(Path.of(staticsPath));
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(null);
+        serverChannel.configureBlocking(false);
+        selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
 
-    public HTTPServer() throws IOException {
-        socket = new ServerSocket();
-        socket.bind(null);
-        if(!socket.isBound())
-            throw new NotYetBoundException();
+        thread = new Thread(this::serve, "http-server");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     public int port() {
-        return socket == null ? -1 : socket.getLocalPort();
+        return serverChannel.socket().getLocalPort();
     }
-    
+
     public String addr() {
-    	return socket == null ? "N/A" : socket.getLocalSocketAddress().toString();
+    	return serverChannel.socket().getLocalSocketAddress().toString();
     }
 
     public void close() throws IOException {
-        if(connection != null)
-            throw new ConnectionPendingException();
-        if(socket != null) {
-            socket.close();
-            socket = null;
-        }
-    }
-
-    public String request() throws IOException {
-    	if(connection != null)
-            throw new ConnectionPendingException();
-        connection = socket.accept();
-        
-        InputStream in = connection.getInputStream();
-        int character, index = 0;
-        do {
-            try {
-            	character = in.read();
-            } catch(IOException e1) {
-                try {
-                    connection.close();
-                } catch(IOException e2) {}
-                
-                connection = null;
-                throw e1;
-            }
-            
-            if(character < 0 || index == buffer.length) {
-                try {
-                    connection.close();
-                } catch(IOException e) {}
-                
-                connection = null;
-                throw new UnknownServiceException("Incomplete HTTP request");
-            }
-            
-            buffer[index++] = (byte) character;
-        } while(index < 4 || buffer[index - 1] != '\n' || buffer[index - 2] != '\r' || buffer[index - 3] != '\n' || buffer[index - 4] != '\r');
-
-        for(index = 0; buffer[index] != '\r'; ++index);
-        
-        String line = new String(buffer, 0, index);
-        String[] parts = line.split(" ");
-        if(parts.length != 3 || !parts[0].equals("GET") || !parts[1].startsWith("/") || !parts[2].equals("HTTP/1.1")) {
+        closed = true;
+        selector.wakeup();
+        try {
+            thread.join(SELECT_TIMEOUT);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait until the server is closed, serving requests in the meantime
+     */
+    public void awaitClose() throws InterruptedException {
+        thread.join();
+    }
+
+    /**
+     * Publish the part of the GUI state that does not change during the run
+     *
+     * @param content  GUI snapshot
+     *
+     */
+    public void publishSnapshot(String content) {
+        snapshot = content.getBytes(StandardCharsets.UTF_8);
+        hasNewData = true;
+        selector.wakeup();
+    }
+
+    /**
+     * Publish the GUI state of a week and answer the requests waiting for it
+     *
+     * @param week     week of the state
+     * @param changes  GUI state, as the changes from the week before
+     * @param state    full GUI state
+     *
+     */
+    public void publishData(int week, String changes, String state) {
+        publishedData.put(week, new PublishedWeek(changes.getBytes(StandardCharsets.UTF_8), state.getBytes(StandardCharsets.UTF_8)));
+        while(publishedData.size() > HISTORY_SIZE)
+            publishedData.pollFirstEntry();
+        hasNewData = true;
+        selector.wakeup();
+    }
+
+    /**
+     * Map every readable file under the statics directory and hash its content
+     */
+    private void loadStaticFiles(Path staticsDirectory) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IOException("Cannot hash the static files!", e);
+        }
+
+        List<Path> files;
+        try(Stream<Path> paths = Files.walk(staticsDirectory, FileVisitOption.FOLLOW_LINKS)) {
+            files = paths.filter(Files::isRegularFile).toList();
+        }
+        for(Path file : files) {
+            String path = staticsDirectory.relativize(file).toString().replace(File.separatorChar, '/');
+            if(!isValidPath(path) || !Files.isReadable(file))
+                continue;
+            try(FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer body = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+                digest.update(body.duplicate());
+                String hash = HexFormat.of().formatHex(digest.digest(), 0, 16);
+                staticFiles.put(path, new StaticFile(getContentType(path), hash, body, isCompressible(path) ? gzip(body) : null));
+            } catch(IOException e) {
+                Log.error("Cannot load the static file {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    private void serve() {
+        long lastIdleCheck = System.currentTimeMillis();
+        while(!closed) {
             try {
-                connection.close();
-            } catch(IOException e) {}
-            
-            connection = null;
-            throw new UnknownServiceException("Invalid HTTP request: " + line);
-        }
-        
-        return parts[1].substring(1);
-    }
-
-    public void reply(File file) throws IOException {
-        if(connection == null)
-            throw new NoConnectionPendingException();
-        
-        FileInputStream in = new FileInputStream(file);
-        OutputStream out = connection.getOutputStream();
-        
-        String date = ZonedDateTime.now(ZoneId.of("GMT")).format(DateTimeFormatter.RFC_1123_DATE_TIME);
-        String header = "HTTP/1.1 200 OK\r\n";
-        long length = file.length();
-        header += "Content-Length: " + length + "\r\n";
-        header += "Cache-Control: no-cache, no-store\r\n";
-        header += "Date: " + date + "\r\n\r\n";
-        
+                selector.select(SELECT_TIMEOUT);
+            } catch(IOException e) {
+                Log.error("HTTP server error: {}", e.getMessage());
+                break;
+            }
+
+            if(hasNewData) {
+                hasNewData = false;
+                replyToDataRequests();
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while(keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if(!key.isValid())
+                    continue;
+                if(key.isAcceptable())
+                    accept();
+                else {
+                    Connection connection = (Connection) key.attachment();
+                    if(key.isReadable())
+                        read(connection);
+                    if(key.isValid() && key.isWritable())
+                        process(connection);
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            if(now - lastIdleCheck >= SELECT_TIMEOUT) {
+                closeIdleConnections(now);
+                lastIdleCheck = now;
+            }
+        }
+
+        for(SelectionKey key : selector.keys())
+            if(key.attachment() instanceof Connection)
+                close((Connection) key.attachment());
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch(IOException e) {
+            Log.debug("HTTP server close error: {}", e.getMessage());
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            }
+        } catch(IOException e) {
+            Log.debug("HTTP accept error: {}", e.getMessage());
+        }
+    }
+
+    private void read(Connection connection) {
+        // Nothing more is expected from a browser on an event stream but the end of the stream
+        if(connection.streaming)
+            connection.readBuffer.clear();
+        try {
+            if(connection.channel.read(connection.readBuffer) < 0) {
+                close(connection);
+                return;
+            }
+        } catch(IOException e) {
+            Log.debug("HTTP request error: {}", e.getMessage());
+            close(connection);
+            return;
+        }
+        connection.lastActiveTime = System.currentTimeMillis();
+        process(connection);
+    }
+
+    /**
+     * Handle the complete requests received on a connection, write the replies that are ready,
+     * and update what the connection waits for
+     */
+    private void process(Connection connection) {
+        if(!connection.channel.isOpen())
+            return;
         try {
-            out.write(header.getBytes());
-            int bytes;
-            while((bytes = in.read(buffer)) >= 0) {
-                length -= bytes;
-                if(length < 0)
-                	break;
-                out.write(buffer, 0, bytes);
-            }
-            if(length != 0)
-                throw new IOException("The file was modified during the reply!");
-        } finally {
+            parseRequests(connection);
+            if(!writeResponses(connection))
+                return;
+            // Replies may have made room for requests that were left unparsed
+            parseRequests(connection);
+            if(!writeResponses(connection))
+                return;
+            if(connection.streaming && connection.responses.isEmpty())
+                writeEvents(connection);
+        } catch(IOException e) {
+            Log.debug("HTTP reply error: {}", e.getMessage());
+            close(connection);
+            return;
+        }
+
+        Response firstResponse = connection.responses.peek();
+        int interestOps = 0;
+        if(connection.streaming || (!connection.closing && connection.responses.size() < MAX_PENDING_RESPONSES))
+            interestOps |= SelectionKey.OP_READ;
+        if((firstResponse != null && firstResponse.buffers != null) || connection.event != null)
+            interestOps |= SelectionKey.OP_WRITE;
+        connection.key.interestOps(interestOps);
+    }
+
+    private void parseRequests(Connection connection) {
+        ByteBuffer buffer = connection.readBuffer;
+        buffer.flip();
+        while(!connection.closing && connection.responses.size() < MAX_PENDING_RESPONSES) {
+            int end = findHeaderEnd(buffer);
+            if(end < 0) {
+                if(buffer.limit() == buffer.capacity()) {
+                    Response response = new Response(connection, false, false);
+                    response.complete(431, "Request Header Fields Too Large", null, null);
+                    connection.responses.add(response);
+                    connection.closing = true;
+                }
+                break;
+            }
+            byte[] head = new byte[end - buffer.position()];
+            buffer.get(head);
+            buffer.position(end + 4);
+            handleRequest(connection, new String(head, StandardCharsets.ISO_8859_1));
+        }
+        buffer.compact();
+    }
+
+    private void handleRequest(Connection connection, String head) {
+        String[] lines = head.split("\r\n");
+        String[] parts = lines[0].split(" ");
+        if(parts.length != 3 || !parts[1].startsWith("/") || !parts[2].startsWith("HTTP/1.")) {
+            Log.debug("Invalid HTTP request: {}", lines[0]);
+            respond(connection, new Response(connection, false, false), 400, "Bad Request");
+            return;
+        }
+
+        boolean keepAlive = parts[2].equals("HTTP/1.1");
+        boolean hasBody = false;
+        boolean acceptsGzip = false;
+        String ifNoneMatch = null;
+        String lastEventId = null;
+        for(int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if(colon < 0)
+                continue;
+            String name = lines[i].substring(0, colon).trim();
+            String value = lines[i].substring(colon + 1).trim();
+            if(name.equalsIgnoreCase("Connection")) {
+                String options = value.toLowerCase();
+                if(options.contains("close"))
+                    keepAlive = false;
+                else if(options.contains("keep-alive"))
+                    keepAlive = true;
+            }
+            else if((name.equalsIgnoreCase("Content-Length") && !value.equals("0")) || name.equalsIgnoreCase("Transfer-Encoding"))
+                hasBody = true;
+            else if(name.equalsIgnoreCase("Accept-Encoding"))
+                acceptsGzip = acceptsGzip(value);
+            else if(name.equalsIgnoreCase("If-None-Match"))
+                ifNoneMatch = value;
+            else if(name.equalsIgnoreCase("Last-Event-ID"))
+                lastEventId = value;
+        }
+
+        boolean isHead = parts[0].equals("HEAD");
+        if(hasBody || (!isHead && !parts[0].equals("GET"))) {
+            respond(connection, new Response(connection, false, false), hasBody ? 400 : 405, hasBody ? "Bad Request" : "Method Not Allowed");
+            return;
+        }
+
+        Response response = new Response(connection, keepAlive, isHead);
+        String path = parts[1].substring(1);
+        int query = path.indexOf('?');
+        if(query >= 0)
+            path = path.substring(0, query);
+
+        if(path.equals(EVENTS_PATH)) {
             try {
-                in.close();
-            } catch(IOException e) {}
-            
+                connection.nextWeek = lastEventId != null ? Integer.parseInt(lastEventId) + 1 : Math.max(getRequestedWeek(parts[1]), 1);
+            } catch(NumberFormatException e) {
+                respond(connection, response, 400, "Bad Request");
+                return;
+            }
+            // A stream is the last reply on its connection
+            response.keepAlive = !isHead;
+            response.completeStream("text/event-stream; charset=utf-8");
+            connection.responses.add(response);
+            connection.closing = true;
+            if(!isHead) {
+                connection.streaming = true;
+                eventStreams.add(connection);
+            }
+            return;
+        }
+
+        if(path.equals(DATA_PATH) || path.equals(SNAPSHOT_PATH)) {
             try {
-                connection.close();
-            } catch(IOException e) {}
-            
-            connection = null;
-        }
-    }
-
-    public void reply(String content) throws IOException {
-        if(connection == null)
-            throw new NoConnectionPendingException();
-        
-        OutputStream out = connection.getOutputStream();
-        
-        String date = ZonedDateTime.now(ZoneId.of("GMT")).format(DateTimeFormatter.RFC_1123_DATE_TIME);
-        String header = "HTTP/1.1 200 OK\r\n";
-        header += "Content-Length: " + content.length() + "\r\n";
-        header += "Cache-Control: no-cache, no-store\r\n";
-        header += "Date: " + date + "\r\n\r\n";
-        
+                response.week = path.equals(SNAPSHOT_PATH) ? -1 : getRequestedWeek(parts[1]);
+            } catch(NumberFormatException e) {
+                respond(connection, response, 400, "Bad Request");
+                return;
+            }
+            connection.responses.add(response);
+            connection.closing = !keepAlive;
+            if(!replyWithData(response))
+                dataRequests.add(response);
+            return;
+        }
+
+        if(path.equals(""))
+            path = "webpage.html";
+        else if(!isValidPath(path)) {
+            Log.debug("Potentially malicious HTTP request: \"{}\"", path);
+            respond(connection, response, 404, "Not Found");
+            return;
+        }
+
+        StaticFile staticFile = staticFiles.get(path);
+        if(staticFile == null) {
+            respond(connection, response, 404, "Not Found");
+            return;
+        }
+        boolean gzipped = acceptsGzip && staticFile.gzipBody != null;
+        String etag = gzipped ? staticFile.gzipETag : staticFile.etag;
+        String headers = "ETag: " + etag + "\r\n" + staticFile.cacheControl;
+        if(staticFile.gzipBody != null)
+            headers += "Vary: Accept-Encoding\r\n";
+        if(ifNoneMatch != null && matchesETag(ifNoneMatch, etag))
+            response.complete(304, "Not Modified", null, null, headers);
+        else if(gzipped)
+            response.complete(200, "OK", staticFile.contentType, staticFile.gzipBody.duplicate(), headers + "Content-Encoding: gzip\r\n");
+        else
+            response.complete(200, "OK", staticFile.contentType, staticFile.body.duplicate(), headers);
+        connection.responses.add(response);
+        connection.closing = !keepAlive;
+    }
+
+    /**
+     * Answer the waiting requests for data.txt whose week has been published, and for
+     * snapshot.txt once the snapshot has been published, and send the new states to the event
+     * streams
+     */
+    private void replyToDataRequests() {
+        eventStreams.removeIf(connection -> !connection.channel.isOpen());
+        for(Connection connection : eventStreams)
+            process(connection);
+
+        List<Response> waitingRequests = dataRequests;
+        dataRequests = new ArrayList<>();
+        for(Response response : waitingRequests) {
+            if(!response.connection.channel.isOpen())
+                continue;
+            if(replyWithData(response))
+                process(response.connection);
+            else
+                dataRequests.add(response);
+        }
+    }
+
+    /**
+     * Make a reply to a request for data.txt or snapshot.txt ready if its content has been
+     * published
+     *
+     * @param response  reply to the request
+     * @return          true if the reply is ready
+     *
+     */
+    private boolean replyWithData(Response response) {
+        byte[] body;
+        if(response.week < 0)
+            body = snapshot;
+        else {
+            Map.Entry<Integer, PublishedWeek> entry = response.week > 0 ? publishedData.ceilingEntry(response.week) : publishedData.lastEntry();
+            body = entry == null ? null : entry.getValue().get(entry.getKey() == response.week);
+        }
+        if(body == null)
+            return false;
+        response.complete(200, "OK", "text/plain; charset=utf-8", ByteBuffer.wrap(body));
+        return true;
+    }
+
+    /**
+     * Get the week asked for in the query of a request for data.txt
+     *
+     * @param target  request target
+     * @return        week asked for, or 0 for the latest week
+     * @throws        NumberFormatException if the week is not a number, or is negative
+     *
+     */
+    private static int getRequestedWeek(String target) {
+        int query = target.indexOf('?');
+        if(query < 0)
+            return 0;
+        for(String parameter : target.substring(query + 1).split("&")) {
+            if(parameter.startsWith("week=")) {
+                // A negative week would be taken for the snapshot
+                int week = Integer.parseInt(parameter.substring(5));
+                if(week < 0)
+                    throw new NumberFormatException("Negative week " + week);
+                return week;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Write the events that an event stream has not received yet, one at a time, until there are
+     * no more or the socket cannot take the rest of one
+     */
+    private void writeEvents(Connection connection) throws IOException {
+        while(true) {
+            if(connection.event == null) {
+                connection.event = nextEvent(connection);
+                if(connection.event == null)
+                    return;
+            }
+            connection.channel.write(connection.event);
+            if(connection.event[connection.event.length - 1].hasRemaining())
+                return;
+            connection.event = null;
+            connection.lastActiveTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Get the next event of an event stream: the snapshot first, then the earliest published
+     * week that the stream has not received yet
+     *
+     * @param connection  connection of the stream
+     * @return            buffers of the event, or null if there is no event to send yet
+     *
+     */
+    private ByteBuffer[] nextEvent(Connection connection) {
+        if(!connection.snapshotSent) {
+            byte[] data = snapshot;
+            if(data == null)
+                return null;
+            connection.snapshotSent = true;
+            return getEvent("retry: " + EVENTS_RETRY_TIME + "\nevent: snapshot\n", data);
+        }
+        Map.Entry<Integer, PublishedWeek> entry = publishedData.ceilingEntry(connection.nextWeek);
+        if(entry == null)
+            return null;
+        byte[] data = entry.getValue().get(entry.getKey() == connection.nextWeek);
+        connection.nextWeek = entry.getKey() + 1;
+        return getEvent("id: " + entry.getKey() + "\nevent: week\n", data);
+    }
+
+    /**
+     * Get the buffers of an event whose data is published content, which is a single line of JSON
+     */
+    private static ByteBuffer[] getEvent(String fields, byte[] data) {
+        return new ByteBuffer[]{
+                ByteBuffer.wrap((fields + "data: ").getBytes(StandardCharsets.UTF_8)),
+                ByteBuffer.wrap(data),
+                ByteBuffer.wrap(new byte[]{'\n', '\n'})
+        };
+    }
+
+    private void respond(Connection connection, Response response, int status, String reason) {
+        response.complete(status, reason, null, null);
+        connection.responses.add(response);
+        connection.closing = !response.keepAlive;
+    }
+
+    /**
+     * Write the replies that are ready, in order, until one is not ready or the socket is full
+     *
+     * @return  false if the connection was closed after its last reply
+     *
+     */
+    private boolean writeResponses(Connection connection) throws IOException {
+        while(!connection.responses.isEmpty()) {
+            Response response = connection.responses.peek();
+            ByteBuffer[] buffers = response.buffers;
+            if(buffers == null)
+                return true;
+            connection.channel.write(buffers);
+            if(buffers[buffers.length - 1].hasRemaining())
+                return true;
+            connection.responses.poll();
+            connection.lastActiveTime = System.currentTimeMillis();
+            if(!response.keepAlive) {
+                close(connection);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void closeIdleConnections(long now) {
+        dataRequests.removeIf(response -> !response.connection.channel.isOpen());
+        for(SelectionKey key : selector.keys()) {
+            if(!(key.attachment() instanceof Connection))
+                continue;
+            Connection connection = (Connection) key.attachment();
+            if(!connection.streaming && connection.responses.isEmpty() && now - connection.lastActiveTime > IDLE_TIMEOUT)
+                close(connection);
+        }
+    }
+
+    private void close(Connection connection) {
+        connection.key.cancel();
         try {
-            out.write(header.getBytes());
-            out.write(content.getBytes());
-        } finally {
-            try {
-                connection.close();
-            } catch(IOException e) {}
-            
-            connection = null;
+            connection.channel.close();
+        } catch(IOException e) {}
+    }
+
+    private static boolean isValidPath(String path) {
+        return !path.isEmpty() && Character.isLetter(path.charAt(0)) && !path.contains("..") && !path.contains("\\")
+                && !path.contains("/.");
+    }
+
+    /**
+     * Check whether an If-None-Match header matches an ETag, ignoring weak validator prefixes
+     */
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        for(String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if(candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+            if(candidate.equals("*") || candidate.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether an Accept-Encoding header accepts gzip with a nonzero quality
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        for(String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            if(!parameters[0].trim().equalsIgnoreCase("gzip"))
+                continue;
+            for(int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if(parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch(NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isCompressible(String path) {
+        String contentType = getContentType(path);
+        return contentType.startsWith("text/") || contentType.startsWith("image/svg");
+    }
+
+    /**
+     * Compress a file's content
+     *
+     * @param body  content of the file
+     * @return      gzipped content, or null if it is not smaller than the content itself
+     *
+     */
+    private static ByteBuffer gzip(ByteBuffer body) throws IOException {
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try(GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream)) {
+            gzipStream.write(bytes);
+        }
+        if(outputStream.size() >= bytes.length)
+            return null;
+        return ByteBuffer.wrap(outputStream.toByteArray()).asReadOnlyBuffer();
+    }
+
+    private static int findHeaderEnd(ByteBuffer buffer) {
+        for(int i = buffer.position(); i + 3 < buffer.limit(); i++)
+            if(buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' && buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n')
+                return i;
+        return -1;
+    }
+
+    private static String getContentType(String path) {
+        String extension = path.substring(path.lastIndexOf('.') + 1).toLowerCase();
+        switch(extension) {
+        case "html":
+            return "text/html; charset=utf-8";
+        case "js":
+            return "text/javascript; charset=utf-8";
+        case "css":
+            return "text/css; charset=utf-8";
+        case "jpg":
+        case "jpeg":
+            return "image/jpeg";
+        case "png":
+            return "image/png";
+        case "gif":
+            return "image/gif";
+        case "ico":
+            return "image/x-icon";
+        case "svg":
+            return "image/svg+xml";
+        default:
+            return "application/octet-stream";
+        }
+    }
+
+    /**
+     * File loaded from the statics directory, with its validators and caching policy
+     */
+    private static class StaticFile {
+
+        private String contentType, etag, gzipETag, cacheControl;
+        private ByteBuffer body, gzipBody;
+
+        StaticFile(String contentType, String hash, ByteBuffer body, ByteBuffer gzipBody) {
+            this.contentType = contentType;
+            this.etag = "\"" + hash + "\"";
+            this.gzipETag = "\"" + hash + "-gzip\"";
+            this.body = body;
+            this.gzipBody = gzipBody;
+            // The page has a fixed URL, so it is revalidated; the assets it links to rarely change
+            if(contentType.startsWith("text/html"))
+                this.cacheControl = "Cache-Control: no-cache\r\n";
+            else
+                this.cacheControl = "Cache-Control: public, max-age=31536000\r\n";
+        }
+    }
+
+    /**
+     * GUI state of a week, as published by the simulation
+     */
+    private static class PublishedWeek {
+
+        private byte[] changes, state;
+
+        PublishedWeek(byte[] changes, byte[] state) {
+            this.changes = changes;
+            this.state = state;
+        }
+
+        /**
+         * Get the content to send to a browser
+         *
+         * @param hasPreviousWeek  whether the browser has the state of the week before
+         * @return                 changes from the week before, or the full state
+         *
+         */
+        byte[] get(boolean hasPreviousWeek) {
+            return hasPreviousWeek ? changes : state;
+        }
+    }
+
+    /**
+     * Client connection, with its unparsed request bytes and its replies in request order, and
+     * the progress of its event stream if it has one
+     */
+    private static class Connection {
+
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private Queue<Response> responses = new ArrayDeque<>();
+        private boolean closing = false;
+        private long lastActiveTime = System.currentTimeMillis();
+        private boolean streaming = false, snapshotSent = false;
+        private int nextWeek;
+        private ByteBuffer[] event;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Reply to one request; its buffers are null until the reply is ready
+     */
+    private static class Response {
+
+        private Connection connection;
+        private boolean keepAlive, isHead;
+        // Week asked for in a request for data.txt, or -1 for snapshot.txt
+        private int week;
+        private ByteBuffer[] buffers;
+
+        Response(Connection connection, boolean keepAlive, boolean isHead) {
+            this.connection = connection;
+            this.keepAlive = keepAlive;
+            this.isHead = isHead;
+        }
+
+        /**
+         * Make an uncached reply ready
+         *
+         * @param status       status code
+         * @param reason       reason phrase
+         * @param contentType  content type, or null for a plain text reply with the reason as body
+         * @param body         body, or null for a plain text reply with the reason as body
+         *
+         */
+        void complete(int status, String reason, String contentType, ByteBuffer body) {
+            complete(status, reason, contentType, body, NO_CACHE);
+        }
+
+        /**
+         * Make the reply ready
+         *
+         * @param status       status code
+         * @param reason       reason phrase
+         * @param contentType  content type, or null for a plain text reply with the reason as body
+         * @param body         body, or null for a plain text reply with the reason as body; a 304
+         *                     reply never has a body
+         * @param headers      caching and other header lines of the reply
+         *
+         */
+        void complete(int status, String reason, String contentType, ByteBuffer body, String headers) {
+            if(body == null && status != 304) {
+                contentType = "text/plain; charset=utf-8";
+                body = ByteBuffer.wrap(reason.getBytes(StandardCharsets.UTF_8));
+            }
+            String header = "HTTP/1.1 " + status + " " + reason + "\r\n";
+            if(body != null) {
+                header += "Content-Type: " + contentType + "\r\n";
+                header += "Content-Length: " + body.remaining() + "\r\n";
+            }
+            ByteBuffer headerBuffer = getHeader(header + headers);
+            buffers = isHead || body == null ? new ByteBuffer[]{headerBuffer} : new ByteBuffer[]{headerBuffer, body};
+        }
+
+        /**
+         * Make the header of a streamed reply ready; the body follows until the connection closes
+         *
+         * @param contentType  content type of the stream
+         *
+         */
+        void completeStream(String contentType) {
+            buffers = new ByteBuffer[]{getHeader("HTTP/1.1 200 OK\r\nContent-Type: " + contentType + "\r\n" + NO_CACHE)};
+        }
+
+        private ByteBuffer getHeader(String header) {
+            String date = ZonedDateTime.now(ZoneId.of("GMT")).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+            header += "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n";
+            header += "Date: " + date + "\r\n\r\n";
+            return ByteBuffer.wrap(header.getBytes(StandardCharsets.ISO_8859_1));
         }
     }
-}
\ No newline at end of file
+}
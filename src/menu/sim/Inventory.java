@@ -1,95 +1,231 @@
 package menu.sim;
 
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import menu.sim.Food.FoodType;
 import menu.sim.Food.MealType;
 
 public class Inventory implements Serializable {
-	
-	private Map<MealType, Map<FoodType, Integer>> mealsMap;
-		
+
+	private static final FoodType[] FOOD_TYPES = FoodType.values();
+	private static final MealType[] MEAL_TYPES = MealType.values();
+	private static final MealType[] FOOD_MEAL_TYPES = new MealType[FOOD_TYPES.length];
+	private static final FoodType[][] MEAL_TYPE_FOODS = new FoodType[MEAL_TYPES.length][];
+	static {
+		for(FoodType foodType : FOOD_TYPES)
+			FOOD_MEAL_TYPES[foodType.ordinal()] = Food.getMealType(foodType);
+		for(MealType mealType : MEAL_TYPES)
+			MEAL_TYPE_FOODS[mealType.ordinal()] = Food.getFoodTypes(mealType).toArray(new FoodType[0]);
+	}
+
+	// Meal counts indexed by food type ordinal, with running totals per meal type and overall
+	private int[] mealCounts = new int[FOOD_TYPES.length];
+	private int[] mealTypeCounts = new int[MEAL_TYPES.length];
+	private int numMeals = 0;
+	private transient Map<MealType, Map<FoodType, Integer>> mealsMap;
+
 	public Inventory() {
 		clearInventory();
 	}
-	
+
 	public List<FoodType> getAvailableFoodTypes(MealType mealType) {
 		List<FoodType> availableMeals = new ArrayList<>();
-		Map<FoodType, Integer> mealTypeFoods = mealsMap.get(mealType);
-		for(FoodType foodType : mealTypeFoods.keySet())
-			if(mealTypeFoods.get(foodType) > 0)
+		for(FoodType foodType : MEAL_TYPE_FOODS[mealType.ordinal()])
+			if(mealCounts[foodType.ordinal()] > 0)
 				availableMeals.add(foodType);
 		return availableMeals;
 	}
-	
+
 	public Integer getNumAvailableFoodTypes(MealType mealType) {
-		return getAvailableFoodTypes(mealType).size();
+		int numFoodTypes = 0;
+		for(FoodType foodType : MEAL_TYPE_FOODS[mealType.ordinal()])
+			if(mealCounts[foodType.ordinal()] > 0)
+				numFoodTypes++;
+		return numFoodTypes;
 	}
-	
+
 	public Integer getNumAvailableMeals() {
-		int numMeals = 0;
-		for(MealType mealType : mealsMap.keySet()) {
-			Map<FoodType, Integer> mealTypeFoods = mealsMap.get(mealType);
-			for(FoodType foodType : mealTypeFoods.keySet())
-				numMeals += mealTypeFoods.get(foodType);		
-		}
 		return numMeals;
 	}
 
 	public Integer getNumAvailableMeals(MealType mealType) {
-		int numMeals = 0;
-		Map<FoodType, Integer> mealTypeFoods = mealsMap.get(mealType);
-		for(FoodType foodType : mealTypeFoods.keySet())
-			numMeals += mealTypeFoods.get(foodType);		
-		return numMeals;
+		return mealTypeCounts[mealType.ordinal()];
 	}
-	
+
 	public Integer getNumAvailableMeals(FoodType foodType) {
-		MealType mealType = Food.getMealType(foodType);
-		return mealsMap.get(mealType).get(foodType);
+		return mealCounts[foodType.ordinal()];
 	}
-	
+
 	public boolean containsMeal(FoodType foodType) {
-		return getNumAvailableMeals(foodType) > 0;
+		return mealCounts[foodType.ordinal()] > 0;
 	}
-	
+
 	public void addMealToInventory(FoodType foodType) {
-		MealType mealType = Food.getMealType(foodType);
-		mealsMap.get(mealType).put(foodType, mealsMap.get(mealType).get(foodType) + 1);
+		mealCounts[foodType.ordinal()]++;
+		mealTypeCounts[FOOD_MEAL_TYPES[foodType.ordinal()].ordinal()]++;
+		numMeals++;
+	}
+
+	/**
+	 * Add several units of a meal to the inventory
+	 *
+	 * @param foodType  food to add
+	 * @param numMeals  number of units to add
+	 *
+	 */
+	public void addMeals(FoodType foodType, int numMeals) {
+		if(numMeals > 0)
+			setCount(foodType, mealCounts[foodType.ordinal()] + numMeals);
 	}
-	
+
+	/**
+	 * Set the number of units of a meal in the inventory
+	 *
+	 * @param foodType  food to set
+	 * @param count     new number of units
+	 *
+	 */
+	public void setCount(FoodType foodType, int count) {
+		if(count < 0)
+			throw new IllegalArgumentException("Meal counts cannot be negative.");
+		int difference = count - mealCounts[foodType.ordinal()];
+		mealCounts[foodType.ordinal()] = count;
+		mealTypeCounts[FOOD_MEAL_TYPES[foodType.ordinal()].ordinal()] += difference;
+		numMeals += difference;
+	}
+
 	public void removeMealFromInventory(FoodType foodType) {
-		MealType mealType = Food.getMealType(foodType);
-		if(mealsMap.get(mealType).get(foodType) > 0)
-			mealsMap.get(mealType).put(foodType, mealsMap.get(mealType).get(foodType) - 1);
+		if(mealCounts[foodType.ordinal()] > 0) {
+			mealCounts[foodType.ordinal()]--;
+			mealTypeCounts[FOOD_MEAL_TYPES[foodType.ordinal()].ordinal()]--;
+			numMeals--;
+		}
 	}
-	
+
+	/**
+	 * Get the meal counts as nested maps of meal type to food type to count
+	 *
+	 * The maps are views of the inventory, built on first use: they always show the current
+	 * counts, and putting a count into an inner map sets the count in the inventory.
+	 *
+	 * @return  meal counts for each meal type
+	 *
+	 */
 	public Map<MealType, Map<FoodType, Integer>> getMealsMap() {
+		if(mealsMap == null) {
+			Map<MealType, Map<FoodType, Integer>> mealTypeMaps = new EnumMap<>(MealType.class);
+			for(MealType mealType : MEAL_TYPES)
+				mealTypeMaps.put(mealType, new MealTypeView(mealType));
+			mealsMap = Collections.unmodifiableMap(mealTypeMaps);
+		}
 		return mealsMap;
 	}
-	
+
 	public void clearInventory() {
-		mealsMap = new HashMap<>();
-		for(MealType mealType : Food.getAllMealTypes()) {
-			Map<FoodType, Integer> mealTypeFoods = new HashMap<>();
-			for(FoodType foodType : Food.getFoodTypes(mealType))
-				mealTypeFoods.put(foodType, 0);
-			mealsMap.put(mealType, mealTypeFoods);
-		}
+		Arrays.fill(mealCounts, 0);
+		Arrays.fill(mealTypeCounts, 0);
+		numMeals = 0;
 	}
-	
+
 	public Inventory clone() {
 		Inventory inventory = new Inventory();
-		for(MealType mealType : mealsMap.keySet()) {
-			for(FoodType foodType : mealsMap.get(mealType).keySet()) {
-				for(int i = 0; i < mealsMap.get(mealType).get(foodType); i++)
-					inventory.addMealToInventory(foodType);
-			}
-		}
+		inventory.copyCounts(this);
 		return inventory;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Replace the counts of this inventory with those of another one
+	 *
+	 * @param inventory  inventory to copy the counts from
+	 *
+	 */
+	protected void copyCounts(Inventory inventory) {
+		System.arraycopy(inventory.mealCounts, 0, mealCounts, 0, mealCounts.length);
+		System.arraycopy(inventory.mealTypeCounts, 0, mealTypeCounts, 0, mealTypeCounts.length);
+		numMeals = inventory.numMeals;
+	}
+
+	private class MealTypeView extends AbstractMap<FoodType, Integer> {
+
+		private final MealType mealType;
+
+		MealTypeView(MealType mealType) {
+			this.mealType = mealType;
+		}
+
+		@Override
+		public int size() {
+			return MEAL_TYPE_FOODS[mealType.ordinal()].length;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof FoodType && FOOD_MEAL_TYPES[((FoodType) key).ordinal()] == mealType;
+		}
+
+		@Override
+		public Integer get(Object key) {
+			if(!containsKey(key))
+				return null;
+			return mealCounts[((FoodType) key).ordinal()];
+		}
+
+		@Override
+		public Integer put(FoodType foodType, Integer count) {
+			if(!containsKey(foodType))
+				throw new IllegalArgumentException(foodType + " is not a " + mealType + " food.");
+			if(count == null)
+				throw new IllegalArgumentException("Meal counts cannot be null.");
+			Integer previousCount = mealCounts[foodType.ordinal()];
+			setCount(foodType, count);
+			return previousCount;
+		}
+
+		@Override
+		public Set<Entry<FoodType, Integer>> entrySet() {
+			return new AbstractSet<Entry<FoodType, Integer>>() {
+				@Override
+				public int size() {
+					return MealTypeView.this.size();
+				}
+
+				@Override
+				public Iterator<Entry<FoodType, Integer>> iterator() {
+					return new Iterator<Entry<FoodType, Integer>>() {
+						private int index = 0;
+
+						@Override
+						public boolean hasNext() {
+							return index < MEAL_TYPE_FOODS[mealType.ordinal()].length;
+						}
+
+						@Override
+						public Entry<FoodType, Integer> next() {
+							if(!hasNext())
+								throw new NoSuchElementException();
+							FoodType foodType = MEAL_TYPE_FOODS[mealType.ordinal()][index++];
+							return new SimpleEntry<FoodType, Integer>(foodType, mealCounts[foodType.ordinal()]) {
+								@Override
+								public Integer setValue(Integer count) {
+									super.setValue(count);
+									return put(foodType, count);
+								}
+							};
+						}
+					};
+				}
+			};
+		}
+	}
+}
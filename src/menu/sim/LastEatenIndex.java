@@ -0,0 +1,73 @@
+package menu.sim;
+
+import menu.sim.Food.FoodType;
+import menu.sim.Food.MealType;
+
+/**
+ * Index of the last day on which each family member ate each food for each meal type.
+ *
+ * The index is updated as meals are added to the history, so looking up how long ago a
+ * food was eaten costs O(1) instead of a walk back through the daily meal history. Days
+ * are numbered from 1 as in {@link MealHistory#getDailyFamilyMeals()}; 0 means never eaten.
+ *
+ * For each meal of the latest recorded week, the index also remembers when the same food
+ * had been eaten before that meal, so lookups can be made for any day of that week even
+ * though the whole week has already been recorded.
+ */
+class LastEatenIndex {
+
+	private static final int NUM_MEMBERS = MemberName.values().length;
+	private static final int NUM_MEAL_TYPES = MealType.values().length;
+	private static final int NUM_FOODS = FoodType.values().length;
+	private static final int DAYS_PER_WEEK = Day.values().length;
+
+	private int[] lastEatenDays = new int[NUM_MEMBERS * NUM_MEAL_TYPES * NUM_FOODS];
+	private int[] previousEatenDays = new int[DAYS_PER_WEEK * NUM_MEMBERS * NUM_MEAL_TYPES];
+	private int weekStartDay = 1;
+
+	/**
+	 * Record a meal; for each member and meal type, meals must be recorded in order of day
+	 *
+	 * @param day         day number of the meal
+	 * @param memberName  family member who ate the meal
+	 * @param mealType    meal type
+	 * @param foodType    food eaten
+	 *
+	 */
+	void record(int day, MemberName memberName, MealType mealType, FoodType foodType) {
+		if(day >= weekStartDay + DAYS_PER_WEEK)
+			weekStartDay = (day - 1) / DAYS_PER_WEEK * DAYS_PER_WEEK + 1;
+
+		int key = getKey(memberName, mealType, foodType);
+		previousEatenDays[getWeekKey(day, memberName, mealType)] = lastEatenDays[key];
+		lastEatenDays[key] = day;
+	}
+
+	/**
+	 * Get the last day before a given day on which a member ate a food
+	 *
+	 * @param memberName  family member
+	 * @param mealType    meal type
+	 * @param foodType    food
+	 * @param day         day number, no earlier than the first day of the latest recorded week
+	 * @return            last day before the given day on which the food was eaten, or 0 if never
+	 *
+	 */
+	int getLastEatenDay(MemberName memberName, MealType mealType, FoodType foodType, int day) {
+		if(day < weekStartDay)
+			throw new IllegalArgumentException("Day " + day + " is before the latest recorded week.");
+
+		int lastEatenDay = lastEatenDays[getKey(memberName, mealType, foodType)];
+		while(lastEatenDay >= day)
+			lastEatenDay = previousEatenDays[getWeekKey(lastEatenDay, memberName, mealType)];
+		return lastEatenDay;
+	}
+
+	private static int getKey(MemberName memberName, MealType mealType, FoodType foodType) {
+		return (memberName.ordinal() * NUM_MEAL_TYPES + mealType.ordinal()) * NUM_FOODS + foodType.ordinal();
+	}
+
+	private int getWeekKey(int day, MemberName memberName, MealType mealType) {
+		return ((day - weekStartDay) * NUM_MEMBERS + memberName.ordinal()) * NUM_MEAL_TYPES + mealType.ordinal();
+	}
+}
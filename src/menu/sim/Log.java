@@ -1,76 +1,367 @@
 package menu.sim;
 
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
+/**
+ * Simulator log, written to standard output and to the log file.
+ *
+ * Messages are stamped with the time they are logged and queued in a bounded lock-free ring
+ * buffer; a background writer thread formats them and writes them in batches to buffered
+ * writers, so logging never waits on disk. If the writer falls a whole buffer behind, new
+ * messages are dropped rather than waited on, and the writer logs how many were dropped once
+ * it catches up. The queue is drained and flushed when the log file is closed and when the
+ * JVM shuts down.
+ *
+ * Messages have a {@link Level}; a message is logged only if logging is enabled and its level is
+ * at or above the configured level. The level methods take a message supplier or a message
+ * pattern with "{}" placeholders, so nothing is built for a disabled level: with logging off,
+ * a call costs a single comparison.
+ */
 public class Log {
 
-	private static FileWriter fileWriter;
-	private static boolean isVerbose = false;
+	public enum Level {
+		ERROR, INFO, DEBUG, TRACE
+	}
+
+	private static final int BUFFER_CAPACITY = 1 << 14;
+	private static final int BATCH_SIZE = 256;
+	private static final long IDLE_PARK_NANOS = 10_000_000L;
+
+	private static final LogRingBuffer buffer = new LogRingBuffer(BUFFER_CAPACITY);
+	private static final AtomicLong numDroppedMessages = new AtomicLong();
+	private static volatile Writer fileWriter;
+	private static volatile Thread writerThread;
+	private static volatile boolean isWriterIdle = false;
+	private static volatile boolean isClosing = false;
+	private static boolean isShutdownHookAdded = false;
+	private static Level level = Level.INFO;
 	private static boolean shouldLog = false;
-	
+
+	// Ordinal of the most detailed level logged, or -1 if logging is disabled
+	private static int enabledLevel = -1;
+
+	// Owned by the writer thread
+	private static final DateFormat dateFormat = new SimpleDateFormat("[yyyy/MM/dd HH:mm:ss.");
+	private static final StringBuilder outputBatch = new StringBuilder(), fileBatch = new StringBuilder();
+	private static long cachedSecond = Long.MIN_VALUE, cachedMillis = Long.MIN_VALUE;
+	private static String cachedSecondPrefix, cachedPrefix;
+
 	public static void setLogFile(String filename) {
+		flush();
+		Writer previousFileWriter = fileWriter;
 		try {
-			fileWriter = new FileWriter(filename, false);
+			fileWriter = new BufferedWriter(new FileWriter(filename, false));
 		} catch(IOException e) {
+			fileWriter = null;
 			e.printStackTrace();
 		}
+		close(previousFileWriter);
 	}
 
+	/**
+	 * Set whether everything is logged; verbose logging logs every level and is the same as
+	 * setting the level to {@link Level#TRACE}, otherwise the level is {@link Level#INFO}
+	 *
+	 * @param isVerbose  verbosity status
+	 *
+	 */
 	public static void assignVerbosityStatus(boolean isVerbose) {
-		Log.isVerbose = isVerbose;
+		setLevel(isVerbose ? Level.TRACE : Level.INFO);
 	}
 
 	public static boolean getVerbosityStatus() {
-		return Log.isVerbose;
+		return level.compareTo(Level.DEBUG) >= 0;
 	}
-	
+
 	public static void assignLoggingStatus(boolean shouldLog) {
 		Log.shouldLog = shouldLog;
+		updateEnabledLevel();
 	}
-	
+
 	public static boolean getLoggingStatus() {
 		return Log.shouldLog;
 	}
-	
+
+	public static void setLevel(Level level) {
+		Log.level = level;
+		updateEnabledLevel();
+	}
+
+	public static Level getLevel() {
+		return level;
+	}
+
+	public static boolean isEnabled(Level level) {
+		return level.ordinal() <= enabledLevel;
+	}
+
+	public static void error(String message) {
+		log(Level.ERROR, message);
+	}
+
+	public static void error(String pattern, Object arg) {
+		if(isEnabled(Level.ERROR))
+			enqueue(format(pattern, arg));
+	}
+
+	public static void error(String pattern, Object arg1, Object arg2) {
+		if(isEnabled(Level.ERROR))
+			enqueue(format(pattern, arg1, arg2));
+	}
+
+	public static void error(Supplier<String> messageSupplier) {
+		log(Level.ERROR, messageSupplier);
+	}
+
+	public static void info(String message) {
+		log(Level.INFO, message);
+	}
+
+	public static void info(String pattern, Object arg) {
+		if(isEnabled(Level.INFO))
+			enqueue(format(pattern, arg));
+	}
+
+	public static void info(String pattern, Object arg1, Object arg2) {
+		if(isEnabled(Level.INFO))
+			enqueue(format(pattern, arg1, arg2));
+	}
+
+	public static void info(Supplier<String> messageSupplier) {
+		log(Level.INFO, messageSupplier);
+	}
+
+	public static void debug(String message) {
+		log(Level.DEBUG, message);
+	}
+
+	public static void debug(String pattern, Object arg) {
+		if(isEnabled(Level.DEBUG))
+			enqueue(format(pattern, arg));
+	}
+
+	public static void debug(String pattern, Object arg1, Object arg2) {
+		if(isEnabled(Level.DEBUG))
+			enqueue(format(pattern, arg1, arg2));
+	}
+
+	public static void debug(Supplier<String> messageSupplier) {
+		log(Level.DEBUG, messageSupplier);
+	}
+
+	public static void trace(String message) {
+		log(Level.TRACE, message);
+	}
+
+	public static void trace(String pattern, Object arg) {
+		if(isEnabled(Level.TRACE))
+			enqueue(format(pattern, arg));
+	}
+
+	public static void trace(String pattern, Object arg1, Object arg2) {
+		if(isEnabled(Level.TRACE))
+			enqueue(format(pattern, arg1, arg2));
+	}
+
+	public static void trace(Supplier<String> messageSupplier) {
+		log(Level.TRACE, messageSupplier);
+	}
+
+	public static void log(Level level, String message) {
+		if(level.ordinal() <= enabledLevel)
+			enqueue(message);
+	}
+
+	/**
+	 * Log a message built from a pattern, replacing each "{}" with the next argument
+	 *
+	 * @param level    level of the message
+	 * @param pattern  message pattern
+	 * @param args     arguments of the pattern
+	 *
+	 */
+	public static void log(Level level, String pattern, Object... args) {
+		if(level.ordinal() <= enabledLevel)
+			enqueue(format(pattern, args));
+	}
+
+	public static void log(Level level, Supplier<String> messageSupplier) {
+		if(level.ordinal() <= enabledLevel)
+			enqueue(messageSupplier.get());
+	}
+
 	public static void writeToVerboseLogFile(String content) {
-		if(isVerbose)
-			writeToLogFile(content);
+		debug(content);
 	}
-	
+
 	public static void writeToLogFile(String content) {
-		if(!shouldLog)
-			return;
-		
-		DateFormat dateFormat = new SimpleDateFormat("[yyyy/MM/dd HH:mm:ss.SSS] ");
-		Date date = new Date();
-		
-		String datedContent = dateFormat.format(date) + content + "\n";
-		System.out.println(datedContent);
-
-		if(fileWriter == null)
+		info(content);
+	}
+
+	private static void updateEnabledLevel() {
+		enabledLevel = shouldLog ? level.ordinal() : -1;
+	}
+
+	private static String format(String pattern, Object... args) {
+		StringBuilder message = new StringBuilder(pattern.length() + 16 * args.length);
+		int start = 0;
+		for(Object arg : args) {
+			int placeholder = pattern.indexOf("{}", start);
+			if(placeholder < 0)
+				break;
+			message.append(pattern, start, placeholder).append(arg);
+			start = placeholder + 2;
+		}
+		return message.append(pattern, start, pattern.length()).toString();
+	}
+
+	private static void enqueue(String content) {
+		Thread writer = writerThread;
+		if(writer == null)
+			writer = startWriter();
+
+		if(!buffer.offer(System.currentTimeMillis(), String.valueOf(content))) {
+			numDroppedMessages.incrementAndGet();
+			LockSupport.unpark(writer);
+		}
+		else if(isWriterIdle)
+			LockSupport.unpark(writer);
+	}
+
+	public static void closeLogFile() {
+		stopWriter();
+
+		Writer previousFileWriter = fileWriter;
+		fileWriter = null;
+		close(previousFileWriter);
+	}
+
+	/**
+	 * Wait until every message logged so far has been written and flushed
+	 *
+	 */
+	public static void flush() {
+		Thread writer = writerThread;
+		while(writer != null && writer.isAlive() && !(buffer.isEmpty() && isWriterIdle)) {
+			LockSupport.unpark(writer);
+			Thread.yield();
+		}
+	}
+
+	private static synchronized Thread startWriter() {
+		if(writerThread != null)
+			return writerThread;
+
+		if(!isShutdownHookAdded) {
+			Runtime.getRuntime().addShutdownHook(new Thread(Log::closeLogFile, "log-shutdown"));
+			isShutdownHookAdded = true;
+		}
+		isClosing = false;
+		Thread writer = new Thread(Log::runWriter, "log-writer");
+		writer.setDaemon(true);
+		writer.start();
+		writerThread = writer;
+		return writer;
+	}
+
+	private static synchronized void stopWriter() {
+		Thread writer = writerThread;
+		if(writer == null)
 			return;
 
+		isClosing = true;
+		LockSupport.unpark(writer);
 		try {
-			fileWriter.append(datedContent);
-		} catch(IOException e) {
-			e.printStackTrace();
-		}		
+			writer.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		writerThread = null;
 	}
 
-	public static void closeLogFile() {
-		if(fileWriter == null)
+	private static void runWriter() {
+		while(true) {
+			if(buffer.drain(Log::append, BATCH_SIZE) > 0)
+				continue;
+			long numDropped = numDroppedMessages.getAndSet(0);
+			if(numDropped > 0)
+				append(System.currentTimeMillis(), numDropped + " log messages were dropped because the log buffer was full.");
+			writeBatch();
+			if(isClosing && buffer.isEmpty())
+				return;
+
+			isWriterIdle = true;
+			if(!buffer.hasNext() && !isClosing)
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+			isWriterIdle = false;
+		}
+	}
+
+	private static void append(long time, String content) {
+		String timestamp = getTimestamp(time);
+		outputBatch.append(timestamp).append(content).append('\n').append('\n');
+		fileBatch.append(timestamp).append(content).append('\n');
+		if(outputBatch.length() >= 1 << 16)
+			writeBatch();
+	}
+
+	/**
+	 * Write the formatted messages of the current batch to standard output and the log file
+	 *
+	 */
+	private static void writeBatch() {
+		if(outputBatch.length() == 0)
+			return;
+
+		System.out.print(outputBatch);
+		System.out.flush();
+		outputBatch.setLength(0);
+
+		Writer writer = fileWriter;
+		if(writer != null) {
+			try {
+				writer.append(fileBatch);
+				writer.flush();
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+		}
+		fileBatch.setLength(0);
+	}
+
+	private static String getTimestamp(long time) {
+		if(time == cachedMillis)
+			return cachedPrefix;
+
+		long second = Math.floorDiv(time, 1000);
+		if(second != cachedSecond) {
+			cachedSecondPrefix = dateFormat.format(new Date(second * 1000));
+			cachedSecond = second;
+		}
+		int millis = Math.floorMod(time, 1000);
+		cachedPrefix = cachedSecondPrefix + (char) ('0' + millis / 100) + (char) ('0' + millis / 10 % 10)
+				+ (char) ('0' + millis % 10) + "] ";
+		cachedMillis = time;
+		return cachedPrefix;
+	}
+
+	private static void close(Writer writer) {
+		if(writer == null)
 			return;
 
 		try {
-			fileWriter.close();
+			writer.close();
 		} catch(IOException e) {
 			e.printStackTrace();
 		}
-
-		fileWriter = null;
 	}
-}
\ No newline at end of file
+}
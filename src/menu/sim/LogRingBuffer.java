@@ -0,0 +1,106 @@
+package menu.sim;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue of timestamped log messages with many producers and one consumer.
+ *
+ * Producers claim a sequence number with a compare-and-set on the tail and then publish their
+ * message into the claimed slot; the consumer takes messages in sequence order and frees each
+ * slot before moving the head past it. A claimed slot whose message is not yet published ends
+ * the consumer's batch until the producer finishes.
+ */
+class LogRingBuffer {
+
+	private final int mask;
+	private final AtomicReferenceArray<String> messages;
+	private final long[] times;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head = 0;
+
+	/**
+	 * Log ring buffer constructor
+	 *
+	 * @param capacity  maximum number of queued messages, a power of two
+	 *
+	 */
+	LogRingBuffer(int capacity) {
+		if(capacity <= 0 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("The log buffer capacity must be a power of two!");
+		this.mask = capacity - 1;
+		this.messages = new AtomicReferenceArray<>(capacity);
+		this.times = new long[capacity];
+	}
+
+	/**
+	 * Add a message to the queue if there is room for it
+	 *
+	 * @param time     time of the message in milliseconds
+	 * @param message  message
+	 * @return         whether the message was added; false if the queue is full
+	 *
+	 */
+	boolean offer(long time, String message) {
+		long sequence;
+		do {
+			sequence = tail.get();
+			if(sequence - head > mask)
+				return false;
+		} while(!tail.compareAndSet(sequence, sequence + 1));
+
+		int index = (int) sequence & mask;
+		times[index] = time;
+		messages.set(index, message);
+		return true;
+	}
+
+	/**
+	 * Check whether the next message is ready to be taken; called by the consumer only
+	 *
+	 * @return  whether a published message is at the head of the queue
+	 *
+	 */
+	boolean hasNext() {
+		return messages.get((int) head & mask) != null;
+	}
+
+	/**
+	 * Take published messages from the head of the queue; called by the consumer only
+	 *
+	 * @param consumer  receives the time and message of each message taken
+	 * @param limit     maximum number of messages to take
+	 * @return          number of messages taken
+	 *
+	 */
+	int drain(MessageConsumer consumer, int limit) {
+		long sequence = head;
+		int count = 0;
+		for(; count < limit; count++, sequence++) {
+			int index = (int) sequence & mask;
+			String message = messages.get(index);
+			if(message == null)
+				break;
+			long time = times[index];
+			messages.lazySet(index, null);
+			head = sequence + 1;
+			consumer.accept(time, message);
+		}
+		return count;
+	}
+
+	/**
+	 * Check whether every claimed slot has been taken
+	 *
+	 * @return  whether the queue is empty
+	 *
+	 */
+	boolean isEmpty() {
+		return tail.get() == head;
+	}
+
+	@FunctionalInterface
+	interface MessageConsumer {
+		void accept(long time, String message);
+	}
+}
@@ -2,113 +2,169 @@ package menu.sim;
 
 import java.util.Map;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 
 import menu.sim.Food.MealType;
 import menu.sim.Food.FoodType;
 
 
+/**
+ * History of everything that has happened in the simulation so far.
+ *
+ * The history is kept in compact primitive stores (one byte per meal, one int per pantry
+ * count) rather than as nested maps of objects. The map getters return read-only views that
+ * decode entries as they are read; the single-entry getters read the stores directly.
+ */
 public class MealHistory implements Serializable {
 
-	private Map<Integer, Planner> allPlanners = new HashMap<>();
-	private Map<Integer, ShoppingList> allShoppingLists = new HashMap<>();
-	private Map<Integer, Pantry> allPantries = new HashMap<>();
-	private Map<Integer, Map<MemberName, Map<MealType, FoodType>>> dailyFamilyMeals = new HashMap<>();
-	private Map<Integer, Map<MemberName, Double>> allSatisfactions = new HashMap<>();
-	private Map<Integer, Map<MemberName, Double>> allAverageSatisfactions = new HashMap<>();
-	
-	
+	private static final Day[] DAYS = Day.values();
+	private static final MemberName[] MEMBER_NAMES = MemberName.values();
+
+	private MealStore dailyFamilyMeals = new MealStore();
+	private ShoppingListStore shoppingLists = new ShoppingListStore();
+	private PantryStore pantries = new PantryStore();
+	private SatisfactionStore satisfactions = new SatisfactionStore();
+	private SatisfactionStore averageSatisfactions = new SatisfactionStore();
+
+	/**
+	 * Create a snapshot of the history to hand to a player
+	 *
+	 * The snapshot shares the recorded weeks with this history instead of copying them, so it
+	 * costs O(1) to take. Anything read through it is either unmodifiable or a private copy, and
+	 * writes to it are copied on first use, so a player can never change the simulator's history.
+	 *
+	 * @return  read-only, copy-on-write snapshot of the history
+	 *
+	 */
+	MealHistory snapshot() {
+		MealHistory snapshot = new MealHistory();
+		snapshot.dailyFamilyMeals = dailyFamilyMeals.snapshot();
+		snapshot.shoppingLists = shoppingLists.snapshot();
+		snapshot.pantries = pantries.snapshot();
+		snapshot.satisfactions = satisfactions.snapshot();
+		snapshot.averageSatisfactions = averageSatisfactions.snapshot();
+		return snapshot;
+	}
+
+
 	public Map<Integer, Planner> getAllPlanners() {
-		return allPlanners;
+		return DenseMapView.ofNumbers(dailyFamilyMeals::getNumWeeks, dailyFamilyMeals::containsWeek, this::getPlanner);
 	}
-	
+
 	public Map<Integer, ShoppingList> getAllShoppingLists() {
-		return allShoppingLists;
+		return DenseMapView.ofNumbers(shoppingLists::getNumWeeks, shoppingLists::containsWeek, shoppingLists::getShoppingList);
 	}
-	
+
 	public Map<Integer, Pantry> getAllPantries() {
-		return allPantries;
+		return DenseMapView.ofNumbers(pantries::getNumWeeks, pantries::containsWeek, pantries::getPantry);
 	}
-	
+
 	public Map<Integer, Map<MemberName, Map<MealType, FoodType>>> getDailyFamilyMeals() {
-		return dailyFamilyMeals;
+		return DenseMapView.ofNumbers(dailyFamilyMeals::getNumDays, dailyFamilyMeals::containsDay, day ->
+			DenseMapView.ofEnum(MEMBER_NAMES, member -> dailyFamilyMeals.containsMember(day, MEMBER_NAMES[member]),
+					member -> dailyFamilyMeals.getMeals(day, MEMBER_NAMES[member])));
 	}
-	
+
 	public Map<Integer, Map<MemberName, Double>> getAllSatisfactions() {
-		return allSatisfactions;
+		return getSatisfactionsView(satisfactions);
 	}
 
 	public Map<Integer, Map<MemberName, Double>> getAllAverageSatisfactions() {
-		return allAverageSatisfactions;
+		return getSatisfactionsView(averageSatisfactions);
 	}
 
 	public FoodType getDailyFamilyMeal(Integer week, Day day, MemberName memberName, MealType mealType) {
-		int numDays = (week - 1) * 7 + new ArrayList<>(Arrays.asList(Day.values())).indexOf(day) + 1;
-		if(!dailyFamilyMeals.containsKey(numDays))
-			return null;
-		if(!dailyFamilyMeals.get(numDays).containsKey(memberName))
-			return null;
-		if(!dailyFamilyMeals.get(numDays).get(memberName).containsKey(mealType))
-			return null;		
-		return dailyFamilyMeals.get(numDays).get(memberName).get(mealType);
+		return dailyFamilyMeals.getMeal(getDayNumber(week, day), memberName, mealType);
 	}
-	
+
 	public Planner getPlanner(Integer week) {
-		if(allPlanners.containsKey(week))
-			return allPlanners.get(week);
-		return null;
+		if(!dailyFamilyMeals.containsWeek(week) || dailyFamilyMeals.isNullWeek(week))
+			return null;
+
+		Planner planner = new Planner();
+		for(Day day : DAYS) {
+			int dayNumber = getDayNumber(week, day);
+			for(MemberName memberName : MEMBER_NAMES) {
+				if(!dailyFamilyMeals.containsMember(dayNumber, memberName))
+					continue;
+				planner.addMember(day, memberName);
+				Map<MealType, FoodType> mealMap = dailyFamilyMeals.getMeals(dayNumber, memberName);
+				if(mealMap != null)
+					for(MealType mealType : mealMap.keySet())
+						planner.addMeal(day, memberName, mealType, mealMap.get(mealType));
+			}
+		}
+		return planner;
 	}
-	
+
 	public ShoppingList getShoppingList(Integer week) {
-		if(allShoppingLists.containsKey(week))
-			return allShoppingLists.get(week);
-		return null;
+		return shoppingLists.getShoppingList(week);
 	}
 
 	public Pantry getPantry(Integer week) {
-		if(allPantries.containsKey(week))
-			return allPantries.get(week);
-		return null;
+		return pantries.getPantry(week);
 	}
 
 	public Double getSatisfaction(Integer week, MemberName memberName) {
-		return allSatisfactions.get(week).get(memberName);
+		return satisfactions.getValue(week, memberName);
 	}
 
 	public Double getAverageSatisfaction(Integer week, MemberName memberName) {
-		return allAverageSatisfactions.get(week).get(memberName);
+		return averageSatisfactions.getValue(week, memberName);
 	}
-	
+
 	public void addDailyFamilyMeal(Integer week, Day day, MemberName memberName, Map<MealType, FoodType> mealMap) {
-		int numDays = (week - 1) * 7 + new ArrayList<>(Arrays.asList(Day.values())).indexOf(day) + 1;
-		if(!dailyFamilyMeals.containsKey(numDays))
-			dailyFamilyMeals.put(numDays, new HashMap<>());
-		dailyFamilyMeals.get(numDays).put(memberName, mealMap);
+		dailyFamilyMeals.putMeals(getDayNumber(week, day), memberName, mealMap);
 	}
-	
+
+	/**
+	 * Add the planner of a week
+	 *
+	 * The planner is stored as the daily family meals of its week, replacing any meals already
+	 * recorded for those days, and is read back from them.
+	 *
+	 * @param week     week number
+	 * @param planner  planner of assigned meals for the week
+	 *
+	 */
 	public void addPlanner(Integer week, Planner planner) {
-		allPlanners.put(week, planner);
+		dailyFamilyMeals.putWeek(week, planner != null);
+		if(planner == null)
+			return;
+		for(Day day : DAYS) {
+			int dayNumber = getDayNumber(week, day);
+			dailyFamilyMeals.clearDay(dayNumber);
+			dailyFamilyMeals.putDay(dayNumber);
+			Map<MemberName, Map<MealType, FoodType>> dayPlan = planner.getPlan().get(day);
+			if(dayPlan == null)
+				continue;
+			for(MemberName memberName : dayPlan.keySet())
+				dailyFamilyMeals.putMeals(dayNumber, memberName, dayPlan.get(memberName));
+		}
 	}
-	
+
 	public void addShoppingList(Integer week, ShoppingList shoppingList) {
-		allShoppingLists.put(week, shoppingList);
+		shoppingLists.putShoppingList(week, shoppingList);
 	}
 
 	public void addPantry(Integer week, Pantry pantry) {
-		allPantries.put(week, pantry);
+		pantries.putPantry(week, pantry);
 	}
-	
+
 	public void addSatisfaction(Integer week, MemberName memberName, Double satisfaction) {
-		if(!allSatisfactions.containsKey(week))
-			allSatisfactions.put(week, new HashMap<>());
-		allSatisfactions.get(week).put(memberName, satisfaction);
+		satisfactions.putValue(week, memberName, satisfaction);
 	}
 
 	public void addAverageSatisfaction(Integer week, MemberName memberName, Double averageSatisfaction) {
-		if(!allAverageSatisfactions.containsKey(week))
-			allAverageSatisfactions.put(week, new HashMap<>());
-		allAverageSatisfactions.get(week).put(memberName, averageSatisfaction);
+		averageSatisfactions.putValue(week, memberName, averageSatisfaction);
+	}
+
+	private static int getDayNumber(int week, Day day) {
+		return (week - 1) * DAYS.length + day.ordinal() + 1;
+	}
+
+	private static Map<Integer, Map<MemberName, Double>> getSatisfactionsView(SatisfactionStore store) {
+		return DenseMapView.ofNumbers(store::getNumWeeks, store::containsWeek, week ->
+			DenseMapView.ofEnum(MEMBER_NAMES, member -> store.containsMember(week, MEMBER_NAMES[member]),
+					member -> store.getValue(week, MEMBER_NAMES[member])));
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,239 @@
+package menu.sim;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import menu.sim.Food.FoodType;
+import menu.sim.Food.MealType;
+
+/**
+ * Compact storage of the meals each family member ate on each day, and of the weekly planners
+ * that assigned them.
+ *
+ * Every member that appears gets one byte array holding a small record per day: a byte saying
+ * whether the member has a meal map for that day, followed by one byte per meal type holding
+ * the food ordinal. Further arrays record which days exist at all and which weeks hold a
+ * planner; a planner is read back from the days of its week, so it is only stored once. Days
+ * and weeks are numbered from 1.
+ *
+ * Records are only ever appended by the simulator, so a snapshot can share the arrays and only
+ * look at the days that existed when it was taken. Writing to a day that a snapshot can see
+ * (or writing to the snapshot itself) copies the arrays first.
+ */
+class MealStore implements Serializable {
+
+	private static final int DAYS_PER_WEEK = Day.values().length;
+	private static final MemberName[] MEMBER_NAMES = MemberName.values();
+	private static final MealType[] MEAL_TYPES = MealType.values();
+	private static final FoodType[] FOOD_TYPES = FoodType.values();
+	private static final int RECORD_SIZE = MEAL_TYPES.length + 1;
+	private static final int INITIAL_DAYS = 64;
+	private static final int INITIAL_WEEKS = INITIAL_DAYS / DAYS_PER_WEEK + 1;
+
+	// Codes for weeks, days, members and meals; a present meal holds FOOD_OFFSET + food ordinal
+	private static final byte ABSENT = 0;
+	private static final byte NULL = 1;
+	private static final byte PRESENT = 2;
+	private static final int FOOD_OFFSET = 2;
+
+	private byte[] weekCodes = new byte[INITIAL_WEEKS];
+	private byte[] dayCodes = new byte[INITIAL_DAYS];
+	private byte[][] memberRecords = new byte[MEMBER_NAMES.length][];
+	private int numWeeks = 0;
+	private int numDays = 0;
+	private int sharedWeeks = 0;
+	private int sharedDays = 0;
+
+	/**
+	 * Create a snapshot that shares this store's arrays
+	 *
+	 * @return  snapshot showing the days recorded so far
+	 *
+	 */
+	MealStore snapshot() {
+		MealStore snapshot = new MealStore();
+		snapshot.weekCodes = weekCodes;
+		snapshot.dayCodes = dayCodes;
+		snapshot.memberRecords = memberRecords.clone();
+		snapshot.numWeeks = numWeeks;
+		snapshot.numDays = numDays;
+		snapshot.sharedWeeks = Integer.MAX_VALUE;
+		snapshot.sharedDays = Integer.MAX_VALUE;
+		sharedWeeks = numWeeks;
+		sharedDays = numDays;
+		return snapshot;
+	}
+
+	int getNumWeeks() {
+		return numWeeks;
+	}
+
+	int getNumDays() {
+		return numDays;
+	}
+
+	boolean containsWeek(int week) {
+		return week >= 1 && week <= numWeeks && weekCodes[week - 1] != ABSENT;
+	}
+
+	boolean isNullWeek(int week) {
+		return containsWeek(week) && weekCodes[week - 1] == NULL;
+	}
+
+	boolean containsDay(int day) {
+		return day >= 1 && day <= numDays && dayCodes[day - 1] != ABSENT;
+	}
+
+	boolean containsMember(int day, MemberName memberName) {
+		return getMemberCode(day, memberName) != ABSENT;
+	}
+
+	/**
+	 * Get the meals of a member on a day
+	 *
+	 * @param day         day number
+	 * @param memberName  family member
+	 * @return            unmodifiable map of meal type to food, or null if there is none
+	 *
+	 */
+	Map<MealType, FoodType> getMeals(int day, MemberName memberName) {
+		if(getMemberCode(day, memberName) != PRESENT)
+			return null;
+
+		byte[] records = memberRecords[memberName.ordinal()];
+		int offset = (day - 1) * RECORD_SIZE;
+		Map<MealType, FoodType> mealMap = new EnumMap<>(MealType.class);
+		for(MealType mealType : MEAL_TYPES) {
+			byte mealCode = records[offset + 1 + mealType.ordinal()];
+			if(mealCode != ABSENT)
+				mealMap.put(mealType, decodeFood(mealCode));
+		}
+		return Collections.unmodifiableMap(mealMap);
+	}
+
+	FoodType getMeal(int day, MemberName memberName, MealType mealType) {
+		if(getMemberCode(day, memberName) != PRESENT)
+			return null;
+		return decodeFood(memberRecords[memberName.ordinal()][(day - 1) * RECORD_SIZE + 1 + mealType.ordinal()]);
+	}
+
+	/**
+	 * Record that a week holds a planner, whose meals are recorded on the days of the week
+	 *
+	 * @param week     week number
+	 * @param present  false if the week should hold a null planner
+	 *
+	 */
+	void putWeek(int week, boolean present) {
+		if(week < 1)
+			throw new IllegalArgumentException("Weeks are numbered from 1.");
+		copyIfShared(week <= sharedWeeks);
+		if(weekCodes.length < week)
+			weekCodes = Arrays.copyOf(weekCodes, Math.max(weekCodes.length * 2, week));
+		weekCodes[week - 1] = present ? PRESENT : NULL;
+		numWeeks = Math.max(numWeeks, week);
+	}
+
+	/**
+	 * Record that a day exists, with or without any meals
+	 *
+	 * @param day  day number
+	 *
+	 */
+	void putDay(int day) {
+		checkDay(day);
+		copyIfShared(day <= sharedDays);
+		ensureDayCapacity(day);
+		dayCodes[day - 1] = PRESENT;
+		numDays = Math.max(numDays, day);
+	}
+
+	/**
+	 * Remove the meals of all members on a day
+	 *
+	 * @param day  day number
+	 *
+	 */
+	void clearDay(int day) {
+		checkDay(day);
+		copyIfShared(day <= sharedDays);
+		for(byte[] records : memberRecords)
+			if(records != null && records.length >= day * RECORD_SIZE)
+				Arrays.fill(records, (day - 1) * RECORD_SIZE, day * RECORD_SIZE, ABSENT);
+	}
+
+	/**
+	 * Record the meals of a member on a day
+	 *
+	 * @param day         day number
+	 * @param memberName  family member
+	 * @param mealMap     map of meal type to food, or null
+	 *
+	 */
+	void putMeals(int day, MemberName memberName, Map<MealType, FoodType> mealMap) {
+		putDay(day);
+
+		byte[] records = memberRecords[memberName.ordinal()];
+		if(records == null || records.length < day * RECORD_SIZE) {
+			int length = records == null ? INITIAL_DAYS * RECORD_SIZE : records.length * 2;
+			records = Arrays.copyOf(records == null ? new byte[0] : records, Math.max(length, day * RECORD_SIZE));
+			memberRecords[memberName.ordinal()] = records;
+		}
+
+		int offset = (day - 1) * RECORD_SIZE;
+		records[offset] = mealMap == null ? NULL : PRESENT;
+		for(MealType mealType : MEAL_TYPES) {
+			byte mealCode = ABSENT;
+			if(mealMap != null && mealMap.containsKey(mealType)) {
+				FoodType foodType = mealMap.get(mealType);
+				mealCode = (byte) (foodType == null ? NULL : FOOD_OFFSET + foodType.ordinal());
+			}
+			records[offset + 1 + mealType.ordinal()] = mealCode;
+		}
+	}
+
+	private byte getMemberCode(int day, MemberName memberName) {
+		if(!containsDay(day))
+			return ABSENT;
+		byte[] records = memberRecords[memberName.ordinal()];
+		if(records == null || records.length < day * RECORD_SIZE)
+			return ABSENT;
+		return records[(day - 1) * RECORD_SIZE];
+	}
+
+	private static FoodType decodeFood(byte mealCode) {
+		return mealCode < FOOD_OFFSET ? null : FOOD_TYPES[mealCode - FOOD_OFFSET];
+	}
+
+	private void ensureDayCapacity(int day) {
+		if(dayCodes.length < day)
+			dayCodes = Arrays.copyOf(dayCodes, Math.max(dayCodes.length * 2, day));
+	}
+
+	private static void checkDay(int day) {
+		if(day < 1)
+			throw new IllegalArgumentException("Days are numbered from 1.");
+	}
+
+	// Copy the arrays before changing a week or day that a snapshot can still see
+	private void copyIfShared(boolean shared) {
+		if(!shared)
+			return;
+
+		byte[] sharedWeekCodes = weekCodes;
+		weekCodes = new byte[Math.max(numWeeks, INITIAL_WEEKS)];
+		System.arraycopy(sharedWeekCodes, 0, weekCodes, 0, numWeeks);
+		byte[] sharedDayCodes = dayCodes;
+		dayCodes = new byte[Math.max(numDays, INITIAL_DAYS)];
+		System.arraycopy(sharedDayCodes, 0, dayCodes, 0, numDays);
+		memberRecords = memberRecords.clone();
+		for(int i = 0; i < memberRecords.length; i++)
+			if(memberRecords[i] != null)
+				memberRecords[i] = Arrays.copyOf(memberRecords[i], Math.min(memberRecords[i].length, numDays * RECORD_SIZE));
+		sharedWeeks = 0;
+		sharedDays = 0;
+	}
+}
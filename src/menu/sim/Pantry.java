@@ -1,7 +1,6 @@
 package menu.sim;
 
 import menu.sim.Food.FoodType;
-import menu.sim.Food.MealType;
 
 public class Pantry extends Inventory {
 	
@@ -18,6 +17,15 @@ public class Pantry extends Inventory {
 			super.addMealToInventory(foodType);
 	}
 	
+	@Override
+	public void addMeals(FoodType foodType, int numMeals) {
+		super.addMeals(foodType, Math.min(numMeals, getNumEmptySlots()));
+	}
+	
+	public Integer getCapacity() {
+		return capacity;
+	}
+	
 	public Integer getNumEmptySlots() {
 		int numEmptySlots = capacity - getNumAvailableMeals();
 		if(numEmptySlots < 0)
@@ -27,12 +35,7 @@ public class Pantry extends Inventory {
 	
 	public Pantry clone() {
 		Pantry pantry = new Pantry(capacity);
-		for(MealType mealType : this.getMealsMap().keySet()) {
-			for(FoodType foodType : this.getMealsMap().get(mealType).keySet()) {
-				for(int i = 0; i < this.getMealsMap().get(mealType).get(foodType); i++)
-					pantry.addMealToInventory(foodType);
-			}
-		}
+		pantry.copyCounts(this);
 		return pantry;
 	}
 }
\ No newline at end of file
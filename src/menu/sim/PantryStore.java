@@ -0,0 +1,107 @@
+package menu.sim;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import menu.sim.Food.FoodType;
+
+/**
+ * Compact storage of the pantry at the end of each week.
+ *
+ * Each week is a fixed-size int record: a code saying whether the week holds a pantry, the
+ * pantry capacity and the count of every food. Weeks are numbered from 1. Snapshots share the
+ * array in the same way as {@link MealStore}.
+ */
+class PantryStore implements Serializable {
+
+	private static final FoodType[] FOOD_TYPES = FoodType.values();
+	private static final int RECORD_SIZE = FOOD_TYPES.length + 2;
+	private static final int INITIAL_WEEKS = 64;
+
+	// Codes for weeks
+	private static final int ABSENT = 0;
+	private static final int NULL = 1;
+	private static final int PRESENT = 2;
+
+	private int[] records = new int[INITIAL_WEEKS * RECORD_SIZE];
+	private int numWeeks = 0;
+	private int sharedWeeks = 0;
+
+	/**
+	 * Create a snapshot that shares this store's array
+	 *
+	 * @return  snapshot showing the weeks recorded so far
+	 *
+	 */
+	PantryStore snapshot() {
+		PantryStore snapshot = new PantryStore();
+		snapshot.records = records;
+		snapshot.numWeeks = numWeeks;
+		snapshot.sharedWeeks = Integer.MAX_VALUE;
+		sharedWeeks = numWeeks;
+		return snapshot;
+	}
+
+	int getNumWeeks() {
+		return numWeeks;
+	}
+
+	boolean containsWeek(int week) {
+		return week >= 1 && week <= numWeeks && records[(week - 1) * RECORD_SIZE] != ABSENT;
+	}
+
+	/**
+	 * Get the pantry of a week
+	 *
+	 * @param week  week number
+	 * @return      new pantry with the recorded counts, or null if there is none
+	 *
+	 */
+	Pantry getPantry(int week) {
+		if(!containsWeek(week) || records[(week - 1) * RECORD_SIZE] == NULL)
+			return null;
+
+		int offset = (week - 1) * RECORD_SIZE;
+		Pantry pantry = new Pantry(records[offset + 1]);
+		for(FoodType foodType : FOOD_TYPES)
+			pantry.setCount(foodType, records[offset + 2 + foodType.ordinal()]);
+		return pantry;
+	}
+
+	int getNumMeals(int week, FoodType foodType) {
+		if(!containsWeek(week))
+			return 0;
+		return records[(week - 1) * RECORD_SIZE + 2 + foodType.ordinal()];
+	}
+
+	/**
+	 * Record the pantry of a week
+	 *
+	 * @param week    week number
+	 * @param pantry  pantry, or null
+	 *
+	 */
+	void putPantry(int week, Pantry pantry) {
+		if(week < 1)
+			throw new IllegalArgumentException("Weeks are numbered from 1.");
+		if(week <= sharedWeeks) {
+			// Copy the array before changing a week that a snapshot can still see
+			int[] sharedRecords = records;
+			records = new int[Math.max(numWeeks, INITIAL_WEEKS) * RECORD_SIZE];
+			System.arraycopy(sharedRecords, 0, records, 0, numWeeks * RECORD_SIZE);
+			sharedWeeks = 0;
+		}
+		if(records.length < week * RECORD_SIZE)
+			records = Arrays.copyOf(records, Math.max(records.length * 2, week * RECORD_SIZE));
+		numWeeks = Math.max(numWeeks, week);
+
+		int offset = (week - 1) * RECORD_SIZE;
+		Arrays.fill(records, offset, offset + RECORD_SIZE, 0);
+		records[offset] = pantry == null ? NULL : PRESENT;
+		if(pantry == null)
+			return;
+		records[offset + 1] = pantry.getCapacity();
+		for(FoodType foodType : FOOD_TYPES)
+			records[offset + 2 + foodType.ordinal()] = pantry.getNumAvailableMeals(foodType);
+	}
+}
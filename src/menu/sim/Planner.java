@@ -1,7 +1,7 @@
 package menu.sim;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 
@@ -9,41 +9,217 @@ import menu.sim.Food.FoodType;
 import menu.sim.Food.MealType;
 
 public class Planner implements Serializable {
-	
-	private Map<Day, Map<MemberName, Map<MealType, FoodType>>> plan;
-	
+
+	private static final Day[] DAYS = Day.values();
+	private static final MemberName[] MEMBER_NAMES = MemberName.values();
+	private static final MealType[] MEAL_TYPES = MealType.values();
+	private static final FoodType[] FOOD_TYPES = FoodType.values();
+
+	// Codes for planned members and meals; a planned meal holds FOOD_OFFSET + food ordinal
+	private static final byte ABSENT = 0;
+	private static final byte NULL = 1;
+	private static final byte PRESENT = 2;
+	private static final int FOOD_OFFSET = 2;
+
+	// One code per (day, member) and per (day, member, meal type), indexed in that order
+	private byte[] memberCodes = new byte[DAYS.length * MEMBER_NAMES.length];
+	private byte[] mealCodes = new byte[DAYS.length * MEMBER_NAMES.length * MEAL_TYPES.length];
+	private transient Map<Day, Map<MemberName, Map<MealType, FoodType>>> plan;
+
 	public Planner() {
-		plan = new HashMap<>();
-		for(Day day : Day.values())
-			plan.put(day, new HashMap<>());
 	}
-	
+
 	public Planner(List<MemberName> memberNames) {
-		plan = new HashMap<>();
-		for(Day day : Day.values()) {
-			plan.put(day, new HashMap<>());
+		for(Day day : DAYS)
 			for(MemberName memberName : memberNames)
-				plan.get(day).put(memberName, new HashMap<>());
-		}
+				memberCodes[getMemberIndex(day.ordinal(), memberName.ordinal())] = PRESENT;
 	}
-	
+
 	public void addMeal(Day day, MemberName memberName, MealType mealType, FoodType foodType) {
-		if(!plan.get(day).containsKey(memberName))
-			plan.get(day).put(memberName, new HashMap<>());
-		plan.get(day).get(memberName).put(mealType, foodType);
+		int memberIndex = getMemberIndex(day.ordinal(), memberName.ordinal());
+		memberCodes[memberIndex] = PRESENT;
+		mealCodes[memberIndex * MEAL_TYPES.length + mealType.ordinal()] = encodeFood(foodType);
+	}
+
+	/**
+	 * Add a family member to a day without planning any of their meals
+	 *
+	 * @param day         day
+	 * @param memberName  family member
+	 *
+	 */
+	void addMember(Day day, MemberName memberName) {
+		memberCodes[getMemberIndex(day.ordinal(), memberName.ordinal())] = PRESENT;
+	}
+
+	boolean hasMember(Day day, MemberName memberName) {
+		return memberCodes[getMemberIndex(day.ordinal(), memberName.ordinal())] != ABSENT;
+	}
+
+	boolean hasMeal(Day day, MemberName memberName, MealType mealType) {
+		return mealCodes[getMemberIndex(day.ordinal(), memberName.ordinal()) * MEAL_TYPES.length + mealType.ordinal()] != ABSENT;
 	}
-	
+
 	public FoodType getMeal(Day day, MemberName memberName, MealType mealType) {
-		if(!plan.containsKey(day))
-			return null;
-		if(!plan.get(day).containsKey(memberName))
-			return null;
-		if(!plan.get(day).get(memberName).containsKey(mealType))
-			return null;
-		return plan.get(day).get(memberName).get(mealType);
-	}
-	
+		return decodeFood(mealCodes[getMemberIndex(day.ordinal(), memberName.ordinal()) * MEAL_TYPES.length + mealType.ordinal()]);
+	}
+
+	/**
+	 * Get the plan as nested maps of day to family member to meal type to food
+	 *
+	 * The maps are views of the planner, built on first use. The maps of family members and of
+	 * meal types write through to the planner, so putting or removing a family member or a meal
+	 * changes the plan; a family member's meals are copied from the map put for them. The days
+	 * are fixed, so the outer map is read-only.
+	 *
+	 * @return  planned meals for each day
+	 *
+	 */
 	public Map<Day, Map<MemberName, Map<MealType, FoodType>>> getPlan() {
+		if(plan == null) {
+			@SuppressWarnings("unchecked")
+			Map<MemberName, Map<MealType, FoodType>>[] dayPlans = (Map<MemberName, Map<MealType, FoodType>>[]) new Map<?, ?>[DAYS.length];
+			for(Day day : DAYS) {
+				int dayIndex = day.ordinal();
+				dayPlans[dayIndex] = DenseMapView.ofEnum(MEMBER_NAMES,
+						member -> memberCodes[getMemberIndex(dayIndex, member)] != ABSENT,
+						member -> getMemberPlan(getMemberIndex(dayIndex, member)))
+						.writable((memberPlan, member) -> setMemberPlan(getMemberIndex(dayIndex, member), memberPlan),
+								member -> setMemberPlan(getMemberIndex(dayIndex, member), null));
+			}
+			plan = DenseMapView.ofEnum(DAYS, dayIndex -> true, dayIndex -> dayPlans[dayIndex]);
+		}
 		return plan;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Check that the planner assigns the same dinner to everyone eating dinner on each day, and
+	 * that the pantry holds enough of every food, in a single pass over the planned meals
+	 *
+	 * @param pantry  pantry inventory of remaining foods
+	 * @return        validity of the planner
+	 *
+	 */
+	boolean isFeasible(Pantry pantry) {
+		int[] plannedMealTally = new int[FOOD_TYPES.length];
+		for(int dayIndex = 0; dayIndex < DAYS.length; dayIndex++) {
+			int assignedDinnerCode = ABSENT;
+			for(int member = 0; member < MEMBER_NAMES.length; member++) {
+				int memberIndex = getMemberIndex(dayIndex, member);
+				if(memberCodes[memberIndex] == ABSENT)
+					continue;
+				for(int mealType = 0; mealType < MEAL_TYPES.length; mealType++) {
+					byte mealCode = mealCodes[memberIndex * MEAL_TYPES.length + mealType];
+					if(mealCode < FOOD_OFFSET)
+						continue;
+					if(mealType == MealType.DINNER.ordinal()) {
+						if(assignedDinnerCode == ABSENT)
+							assignedDinnerCode = mealCode;
+						else if(assignedDinnerCode != mealCode)
+							return false;
+					}
+					int food = mealCode - FOOD_OFFSET;
+					if(++plannedMealTally[food] > pantry.getNumAvailableMeals(FOOD_TYPES[food]))
+						return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Create a planner with every given family member on every day, keeping only their meals
+	 *
+	 * @param memberNames  family members to keep
+	 * @return             new planner for the family members
+	 *
+	 */
+	Planner forMembers(List<MemberName> memberNames) {
+		Planner planner = new Planner(memberNames);
+		for(int dayIndex = 0; dayIndex < DAYS.length; dayIndex++) {
+			for(MemberName memberName : memberNames) {
+				int memberIndex = getMemberIndex(dayIndex, memberName.ordinal());
+				if(memberCodes[memberIndex] != ABSENT)
+					System.arraycopy(mealCodes, memberIndex * MEAL_TYPES.length, planner.mealCodes,
+							memberIndex * MEAL_TYPES.length, MEAL_TYPES.length);
+			}
+		}
+		return planner;
+	}
+
+	/**
+	 * Write the planner's member and meal codes to a buffer
+	 *
+	 * @param buffer  buffer to write to
+	 *
+	 */
+	void writeTo(ByteBuffer buffer) {
+		buffer.put(memberCodes).put(mealCodes);
+	}
+
+	/**
+	 * Read a planner written by {@link #writeTo(ByteBuffer)}
+	 *
+	 * @param buffer  buffer to read from
+	 * @return        planner
+	 * @throws        IllegalArgumentException if a code is not valid
+	 *
+	 */
+	static Planner readFrom(ByteBuffer buffer) {
+		Planner planner = new Planner();
+		buffer.get(planner.memberCodes).get(planner.mealCodes);
+		for(byte memberCode : planner.memberCodes)
+			if(memberCode != ABSENT && memberCode != PRESENT)
+				throw new IllegalArgumentException("Invalid planner member code " + memberCode + "!");
+		for(byte mealCode : planner.mealCodes)
+			if(mealCode < ABSENT || mealCode >= FOOD_OFFSET + FOOD_TYPES.length)
+				throw new IllegalArgumentException("Invalid planner meal code " + mealCode + "!");
+		return planner;
+	}
+
+	public Planner clone() {
+		Planner planner = new Planner();
+		planner.memberCodes = memberCodes.clone();
+		planner.mealCodes = mealCodes.clone();
+		return planner;
+	}
+
+	private Map<MealType, FoodType> getMemberPlan(int memberIndex) {
+		int offset = memberIndex * MEAL_TYPES.length;
+		return DenseMapView.ofEnum(MEAL_TYPES, mealType -> mealCodes[offset + mealType] != ABSENT,
+				mealType -> decodeFood(mealCodes[offset + mealType]))
+				.writable((foodType, mealType) -> {
+					memberCodes[memberIndex] = PRESENT;
+					mealCodes[offset + mealType] = encodeFood(foodType);
+				}, mealType -> mealCodes[offset + mealType] = ABSENT);
+	}
+
+	/**
+	 * Replace a family member's meals on a day
+	 *
+	 * @param memberIndex  index of the day and family member
+	 * @param memberPlan   meals of the family member, or null to remove them from the day
+	 *
+	 */
+	private void setMemberPlan(int memberIndex, Map<MealType, FoodType> memberPlan) {
+		int offset = memberIndex * MEAL_TYPES.length;
+		byte[] memberMealCodes = new byte[MEAL_TYPES.length];
+		if(memberPlan != null)
+			for(Map.Entry<MealType, FoodType> meal : memberPlan.entrySet())
+				memberMealCodes[meal.getKey().ordinal()] = encodeFood(meal.getValue());
+		System.arraycopy(memberMealCodes, 0, mealCodes, offset, MEAL_TYPES.length);
+		memberCodes[memberIndex] = memberPlan == null ? ABSENT : PRESENT;
+	}
+
+	private static int getMemberIndex(int dayIndex, int member) {
+		return dayIndex * MEMBER_NAMES.length + member;
+	}
+
+	private static byte encodeFood(FoodType foodType) {
+		return (byte) (foodType == null ? NULL : FOOD_OFFSET + foodType.ordinal());
+	}
+
+	private static FoodType decodeFood(byte mealCode) {
+		return mealCode < FOOD_OFFSET ? null : FOOD_TYPES[mealCode - FOOD_OFFSET];
+	}
+}
@@ -11,6 +11,7 @@ public abstract class Player {
     public Integer weeks, numFamilyMembers, capacity, seed;
     public Random random;
     public SimPrinter simPrinter;
+    private volatile TimeBudget timeBudget;
     
     /**
      * Player constructor
@@ -31,6 +32,37 @@ public abstract class Player {
         this.simPrinter = simPrinter;        
 	}
 
+    /**
+     * Get the time left in the run's time budget
+     *
+     * All calls of a run with a time budget share one pool of time. Each call is charged the
+     * time it uses, as wall-clock or CPU time depending on --cpu-timeout, and the time of a call
+     * in progress is already deducted: a player can spend more time in some weeks and less in
+     * others, and should check the remaining budget while searching. Time between calls is not
+     * charged. Once the budget is empty, the player is no longer called.
+     *
+     * @return  remaining time budget in milliseconds, or Long.MAX_VALUE if the run has no time budget
+     *
+     */
+    protected long getRemainingBudget() {
+        TimeBudget timeBudget = this.timeBudget;
+        return timeBudget == null ? Long.MAX_VALUE : timeBudget.getRemainingTime();
+    }
+
+    /**
+     * Get the run's time budget
+     *
+     * @return  time budget, or null if each call is limited by a timeout instead
+     *
+     */
+    protected TimeBudget getTimeBudget() {
+        return timeBudget;
+    }
+
+    void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     /**
      * Create shopping list of meals to stock pantry
      *
@@ -91,51 +123,6 @@ public abstract class Player {
      *
      */
     public static boolean hasValidPlanner(Planner planner, Pantry pantry) {
-    	Map<Day, Map<MemberName, Map<MealType, FoodType>>> plan = planner.getPlan();
-    	
-    	// Check for each day that the assigned dinner for all family members is the same
-	    for(Day day : plan.keySet()) {
-		    FoodType currentAssignedDinner = null;
-		    
-		    Map<MemberName, Map<MealType, FoodType>> dayPlan = plan.get(day);
-	    	for(MemberName memberName : dayPlan.keySet()) {
-	    		if(!dayPlan.get(memberName).containsKey(MealType.DINNER))
-	    			continue;
-	    		
-	    		FoodType chosenMeal = dayPlan.get(memberName).get(MealType.DINNER);
-	    		if(chosenMeal == null)
-	    			continue;
-	    		
-	    		if(currentAssignedDinner == null) {
-	    			currentAssignedDinner = chosenMeal;
-	    			continue;
-	    		}
-
-	    		if(!currentAssignedDinner.equals(chosenMeal))
-	    			return false;
-	    	}
-	    }
-	    
-	    // Check if the planner is compatible with what is available inside the pantry
-	    Map<FoodType, Integer> plannedMealTally = new HashMap<>();
-	    for(FoodType foodType : Food.getAllFoodTypes())
-	    	plannedMealTally.put(foodType, 0);
-	    for(Day day : plan.keySet()) {
-	    	for(MemberName memberName : plan.get(day).keySet()) {
-	    		for(MealType mealType : plan.get(day).get(memberName).keySet()) {
-	    			FoodType foodType = plan.get(day).get(memberName).get(mealType);
-	    			if(foodType == null)
-	    				continue;
-	    			plannedMealTally.put(foodType, plannedMealTally.get(foodType) + 1);
-	    		}
-	    	}
-	    }
-	    for(FoodType foodType : plannedMealTally.keySet()) {
-	    	if(pantry.getNumAvailableMeals(foodType) < plannedMealTally.get(foodType))
-	    		return false;
-	    }
-	    
-	    
-    	return true;
+    	return planner.isFeasible(pantry);
     }
 }
@@ -0,0 +1,139 @@
+package menu.sim;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Child process that runs a team's player for a {@link SandboxedPlayer}.
+ *
+ * The host connects to the simulator's control socket, then answers calls until it is told to
+ * shut down or the simulator goes away. Calls are read from and results written to the shared
+ * buffer; an exception thrown by the player is sent back as an error message instead of a result.
+ * The player runs on a {@link Timer} worker, and every response starts with the CPU time and
+ * bytes allocated by the call, since the simulator cannot measure the player's thread.
+ *
+ * Arguments: team name, weeks, number of family members, capacity, seed, whether prints are
+ * enabled, control socket path and shared buffer path.
+ */
+public class PlayerHost {
+
+	private Player player;
+	private SocketChannel channel;
+	private SharedBuffer sharedBuffer;
+	private ByteBuffer header = ByteBuffer.allocateDirect(SandboxedPlayer.HEADER_SIZE);
+	private MealHistory mealHistory = new MealHistory();
+	private Timer timer = new Timer("player-host", false);
+	private boolean playerCalled;
+
+	private PlayerHost(Player player, SocketChannel channel, SharedBuffer sharedBuffer) {
+		this.player = player;
+		this.channel = channel;
+		this.sharedBuffer = sharedBuffer;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length != 8) {
+			System.err.println("Usage: PlayerHost team weeks members capacity seed prints socket buffer");
+			System.exit(1);
+		}
+
+		Class<?> rawClass = PlayerHost.class.getClassLoader().loadClass("menu." + args[0] + ".Player");
+		Class<?>[] classArgs = new Class<?>[]{Integer.class, Integer.class, Integer.class, Integer.class, SimPrinter.class};
+		Player player = (Player) rawClass.getDeclaredConstructor(classArgs).newInstance(Integer.parseInt(args[1]),
+				Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]), new SimPrinter(Boolean.parseBoolean(args[5])));
+
+		SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+		channel.connect(UnixDomainSocketAddress.of(args[6]));
+		new PlayerHost(player, channel, new SharedBuffer(Path.of(args[7]))).serve();
+
+		// Player threads must not keep the process alive
+		System.exit(0);
+	}
+
+	private void serve() throws IOException {
+		while(SandboxedPlayer.readHeader(channel, header)) {
+			int operation = header.getInt(0);
+			if(operation == SandboxedPlayer.SHUTDOWN)
+				return;
+
+			ByteBuffer request = sharedBuffer.forReading(header.getInt(4));
+			int status = SandboxedPlayer.OK;
+			int length;
+			playerCalled = false;
+			try {
+				Object result = call(operation, request);
+				length = sharedBuffer.write(buffer -> {
+					writeUsage(buffer);
+					if(operation == SandboxedPlayer.STOCK_PANTRY)
+						SandboxCodec.writeShoppingList(buffer, (ShoppingList) result);
+					else
+						SandboxCodec.writePlanner(buffer, (Planner) result);
+				});
+			} catch(Throwable e) {
+				Throwable error = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+				status = SandboxedPlayer.ERROR;
+				length = sharedBuffer.write(buffer -> {
+					writeUsage(buffer);
+					SandboxCodec.writeString(buffer, error.toString());
+				});
+			}
+			SandboxedPlayer.writeHeader(channel, header, status, length);
+		}
+	}
+
+	/**
+	 * Write the CPU time and bytes allocated by the player call, or -1 if the player was not called
+	 *
+	 * @param buffer  response in the shared buffer
+	 *
+	 */
+	private void writeUsage(ByteBuffer buffer) {
+		buffer.putLong(playerCalled ? timer.getCpuTime() : -1);
+		buffer.putLong(playerCalled ? timer.getAllocatedBytes() : -1);
+	}
+
+	/**
+	 * Decode a call and run it on the player
+	 *
+	 * @param operation  operation of the call
+	 * @param request    request written by {@link SandboxedPlayer}
+	 * @return           shopping list or planner returned by the player
+	 *
+	 */
+	private Object call(int operation, ByteBuffer request) throws Exception {
+		int week = request.getInt();
+		long remainingBudget = request.getLong();
+		SandboxCodec.readHistoryWeeks(request, mealHistory);
+
+		int numEmptySlots = operation == SandboxedPlayer.STOCK_PANTRY ? request.getInt() : 0;
+		List<FamilyMember> familyMembers = SandboxCodec.readFamilyMembers(request);
+		Pantry pantry = SandboxCodec.readPantry(request);
+
+		// The budget left when the call was sent is counted down from the start of the call
+		TimeBudget timeBudget = null;
+		if(remainingBudget >= 0) {
+			long startTime = System.nanoTime();
+			timeBudget = TimeBudget.ofRemainingNanos(remainingBudget);
+			timeBudget.startCall(() -> System.nanoTime() - startTime);
+		}
+		player.setTimeBudget(timeBudget);
+		MealHistory history = mealHistory.snapshot();
+
+		switch(operation) {
+		case SandboxedPlayer.STOCK_PANTRY:
+			playerCalled = true;
+			return timer.call(() -> player.stockPantry(week, numEmptySlots, familyMembers, pantry, history), 0);
+		case SandboxedPlayer.PLAN_MEALS:
+			playerCalled = true;
+			return timer.call(() -> player.planMeals(week, familyMembers, pantry, history), 0);
+		default:
+			throw new IllegalArgumentException("Unknown operation " + operation + "!");
+		}
+	}
+}
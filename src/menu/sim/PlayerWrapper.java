@@ -1,6 +1,11 @@
 package menu.sim;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class PlayerWrapper {
 
@@ -8,54 +13,127 @@ public class PlayerWrapper {
     private Player player;
     private String playerName;
     private long timeout;
+    private TimeBudget timeBudget;
+    private CallStatistics stockPantryStatistics = new CallStatistics("stockPantry");
+    private CallStatistics planMealsStatistics = new CallStatistics("planMeals");
 
-    public PlayerWrapper(Player player, String playerName, long timeout) {
+    public PlayerWrapper(Player player, String playerName, long timeout, boolean isCpuTimeout) {
+        this(player, playerName, timeout, isCpuTimeout, null);
+    }
+
+    /**
+     * Player wrapper constructor
+     *
+     * @param player        player
+     * @param playerName    team name of the player
+     * @param timeout       time limit of each call, in milliseconds; ignored if there is a time budget
+     * @param isCpuTimeout  whether time limits apply to CPU time rather than wall-clock time
+     * @param timeBudget    time pool shared by all calls of the run, or null to limit each call to the timeout
+     *
+     */
+    public PlayerWrapper(Player player, String playerName, long timeout, boolean isCpuTimeout, TimeBudget timeBudget) {
         this.player = player;
         this.playerName = playerName;
         this.timeout = timeout;
-        this.timer = new Timer();
+        this.timeBudget = timeBudget;
+        this.timer = new Timer("player-" + playerName, isCpuTimeout);
+        player.setTimeBudget(timeBudget);
     }
 
     public ShoppingList stockPantry(Integer week, Integer numEmptySlots, List<FamilyMember> familyMembers, Pantry pantry, MealHistory mealHistory) {
 
-    	Log.writeToVerboseLogFile("Team " + this.playerName + " stocking pantry for week " + week + "...");
+    	Log.debug("Team {} stocking pantry for week {}...", playerName, week);
         
-    	ShoppingList shoppingList = new ShoppingList();
-
-        try {
-            if(!timer.isAlive())
-            	timer.start();
-            timer.callStart(() -> { return player.stockPantry(week, numEmptySlots, familyMembers, pantry, mealHistory); });
-            shoppingList = timer.callWait(timeout);
-        }
-        catch(Exception e) {
-            Log.writeToVerboseLogFile("Team " + this.playerName + " generated an exception while stocking pantry.");
-            Log.writeToVerboseLogFile("Exception for team " + this.playerName + ": " + e);
-        }
-
-        return shoppingList;
+    	return call(stockPantryStatistics, week, () -> player.stockPantry(week, numEmptySlots, familyMembers, pantry, mealHistory),
+    			new ShoppingList());
     }
     
     public Planner planMeals(Integer week, List<FamilyMember> familyMembers, Pantry pantry, MealHistory mealHistory) {
 
-    	Log.writeToVerboseLogFile("Team " + this.playerName + " planning meals for week " + week + "...");
+    	Log.debug("Team {} planning meals for week {}...", playerName, week);
         
-    	Planner planner = new Planner();
+    	return call(planMealsStatistics, week, () -> player.planMeals(week, familyMembers, pantry, mealHistory), new Planner());
+    }
+
+    /**
+     * Run a player call with the timeout and record its latency, CPU time and allocation
+     *
+     * With a time budget, the call may use whatever remains of the budget and is charged the
+     * time it used; once the budget is empty, the player is not called. The CPU time and
+     * allocation of a sandboxed player are measured in its own process rather than on the timer.
+     *
+     * @param statistics  statistics of the player method
+     * @param week        week of the call
+     * @param task        player call
+     * @param fallback    result to use if the call times out or throws an exception
+     * @return            result of the call, or the fallback
+     *
+     */
+    private <T> T call(CallStatistics statistics, Integer week, Callable<T> task, T fallback) {
+        long callTimeout = timeout;
+        if(timeBudget != null) {
+            long remainingTime = timeBudget.getRemainingNanos();
+            if(remainingTime < TimeUnit.MILLISECONDS.toNanos(1)) {
+                Log.error("Team {} has used its whole time budget; {} is not called.", playerName, statistics.getName());
+                return fallback;
+            }
+            callTimeout = TimeUnit.NANOSECONDS.toMillis(remainingTime);
+            timeBudget.startCall(timer::getCurrentCallTime);
+        }
 
+        boolean timedOut = false, failed = false;
         try {
-            if(!timer.isAlive())
-            	timer.start();
-            timer.callStart(() -> { return player.planMeals(week, familyMembers, pantry, mealHistory); });
-            planner = timer.callWait(timeout);
+            return timer.call(task, callTimeout);
+        }
+        catch(TimeoutException e) {
+            timedOut = true;
+            Log.log(Log.Level.ERROR, "Team {} timed out in {} after {} ms; the call was cancelled.", playerName, statistics.getName(), callTimeout);
+            return fallback;
         }
         catch(Exception e) {
-            Log.writeToVerboseLogFile("Team " + this.playerName + " generated an exception while planning meals.");
-            Log.writeToVerboseLogFile("Exception for team " + this.playerName + ": " + e);
+            failed = true;
+            Log.error("Team {} generated an exception in {}.", playerName, statistics.getName());
+            Log.error("Exception for team {}: {}", playerName, e);
+            return fallback;
+        }
+        finally {
+            if(timeBudget != null)
+                timeBudget.endCall(timer.getCallTime());
+            long cpuTime = timer.getCpuTime(), allocatedBytes = timer.getAllocatedBytes();
+            if(player instanceof SandboxedPlayer) {
+                cpuTime = ((SandboxedPlayer) player).getCpuTime();
+                allocatedBytes = ((SandboxedPlayer) player).getAllocatedBytes();
+            }
+            statistics.record(timer.getElapsedTime(), cpuTime, allocatedBytes, timedOut, failed);
+            long loggedCpuTime = cpuTime, loggedAllocatedBytes = allocatedBytes;
+            Log.debug(() -> String.format("Team %s %s for week %d: %.3f ms, CPU time %.3f ms, allocated %.1f KB", playerName,
+                    statistics.getName(), week, timer.getElapsedTime() / 1e6, loggedCpuTime / 1e6, loggedAllocatedBytes / 1024.0));
         }
-
-        return planner;
     }
        
+    public void close() {
+    	timer.shutdown();
+    	if(player instanceof Closeable) {
+    		try {
+    			((Closeable) player).close();
+    		} catch(IOException e) {
+    			Log.error("Cannot close team {}'s player: {}", playerName, e.getMessage());
+    		}
+    	}
+    }
+
+    public TimeBudget getTimeBudget() {
+        return timeBudget;
+    }
+
+    public CallStatistics getStockPantryStatistics() {
+        return stockPantryStatistics;
+    }
+
+    public CallStatistics getPlanMealsStatistics() {
+        return planMealsStatistics;
+    }
+
     public Player getPlayer() {
     	return player;
     }
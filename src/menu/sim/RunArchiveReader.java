@@ -0,0 +1,128 @@
+package menu.sim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import menu.sim.Food.FoodType;
+import menu.sim.Food.MealType;
+
+/**
+ * Reads a run archive written by {@link RunArchiveWriter}.
+ *
+ * The archive is memory-mapped rather than parsed, so opening it costs the same regardless of
+ * the number of weeks, and every value is read directly from its fixed position in the file.
+ */
+public class RunArchiveReader implements Closeable {
+
+	private static final int NUM_DAYS = Day.values().length;
+	private static final int NUM_MEAL_TYPES = MealType.values().length;
+	private static final FoodType[] FOOD_TYPES = FoodType.values();
+
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private List<MemberName> memberNames;
+	private int[] memberIndices = new int[MemberName.values().length];
+	private int numWeeks, capacity, seed;
+	private int headerSize, mealsSize, recordSize;
+
+	/**
+	 * Run archive reader constructor; maps the archive into memory
+	 *
+	 * @param path  path of the archive
+	 *
+	 */
+	public RunArchiveReader(String path) throws IOException {
+		channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try {
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("The run archive is too large to be mapped!");
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.limit() < RunArchiveWriter.HEADER_FIELDS_SIZE || buffer.getInt(0) != RunArchiveWriter.MAGIC)
+				throw new IOException("The file is not a run archive!");
+			if(buffer.getInt(4) != RunArchiveWriter.VERSION)
+				throw new IOException("Unsupported run archive version " + buffer.getInt(4) + "!");
+
+			int numMembers = buffer.getInt(12);
+			capacity = buffer.getInt(16);
+			seed = buffer.getInt(20);
+			headerSize = RunArchiveWriter.getHeaderSize(numMembers);
+			mealsSize = RunArchiveWriter.getMealsSize(numMembers);
+			recordSize = RunArchiveWriter.getRecordSize(numMembers);
+
+			Arrays.fill(memberIndices, -1);
+			List<MemberName> memberNames = new ArrayList<>();
+			for(int i = 0; i < numMembers; i++) {
+				MemberName memberName = MemberName.values()[buffer.get(RunArchiveWriter.HEADER_FIELDS_SIZE + i)];
+				memberIndices[memberName.ordinal()] = i;
+				memberNames.add(memberName);
+			}
+			this.memberNames = Collections.unmodifiableList(memberNames);
+
+			// Only trust weeks that were completely written
+			numWeeks = Math.min(buffer.getInt(RunArchiveWriter.NUM_WEEKS_POSITION), (buffer.limit() - headerSize) / recordSize);
+		} catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public int getNumWeeks() {
+		return numWeeks;
+	}
+
+	public List<MemberName> getMemberNames() {
+		return memberNames;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	public FoodType getMeal(int week, Day day, MemberName memberName, MealType mealType) {
+		int offset = getRecordOffset(week) + (day.ordinal() * memberNames.size() + getMemberIndex(memberName)) * NUM_MEAL_TYPES + mealType.ordinal();
+		byte food = buffer.get(offset);
+		return food == RunArchiveWriter.NO_MEAL ? null : FOOD_TYPES[food];
+	}
+
+	public double getSatisfaction(int week, MemberName memberName) {
+		return buffer.getDouble(getRecordOffset(week) + mealsSize + Double.BYTES * getMemberIndex(memberName));
+	}
+
+	public double getAverageSatisfaction(int week, MemberName memberName) {
+		return buffer.getDouble(getRecordOffset(week) + mealsSize + Double.BYTES * (memberNames.size() + getMemberIndex(memberName)));
+	}
+
+	public int getPantryCount(int week, FoodType foodType) {
+		return buffer.getInt(getRecordOffset(week) + mealsSize + 2 * Double.BYTES * memberNames.size() + Integer.BYTES * foodType.ordinal());
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private int getRecordOffset(int week) {
+		if(week < 1 || week > numWeeks)
+			throw new IndexOutOfBoundsException("Week " + week + " is not in the archive!");
+		return headerSize + (week - 1) * recordSize;
+	}
+
+	private int getMemberIndex(MemberName memberName) {
+		int memberIndex = memberIndices[memberName.ordinal()];
+		if(memberIndex < 0)
+			throw new IllegalArgumentException(memberName + " is not a family member in the archive!");
+		return memberIndex;
+	}
+}
@@ -0,0 +1,131 @@
+package menu.sim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import menu.sim.Food.FoodType;
+import menu.sim.Food.MealType;
+
+/**
+ * Writes a run archive: a compact binary record of a simulation, one fixed-size record per week.
+ *
+ * The file starts with a header holding the number of weeks written so far, the number of family
+ * members, the capacity, the seed and the family members' ordinals. Each week is then stored as
+ * fixed-width columns: the food ordinal of every (day, member, meal type), or -1 if there is none,
+ * followed by every member's satisfaction and average satisfaction and the pantry count of every
+ * food. Week, day, member and meal type are given by the position of a value, so the records for
+ * any week can be found without scanning; see {@link RunArchiveReader}.
+ *
+ * The header is updated after every week, so the weeks written before a crash can still be read.
+ */
+public class RunArchiveWriter implements Closeable {
+
+	static final int MAGIC = 0x4D454E55;
+	static final int VERSION = 1;
+	static final int NUM_WEEKS_POSITION = 8;
+	static final int HEADER_FIELDS_SIZE = 24;
+	static final byte NO_MEAL = -1;
+
+	private static final Day[] DAYS = Day.values();
+	private static final MealType[] MEAL_TYPES = MealType.values();
+	private static final FoodType[] FOOD_TYPES = FoodType.values();
+
+	private FileChannel channel;
+	private List<MemberName> memberNames;
+	private ByteBuffer record, numWeeksBuffer = ByteBuffer.allocate(4);
+	private int headerSize;
+	private int numWeeks = 0;
+
+	/**
+	 * Run archive writer constructor; creates the file and writes its header
+	 *
+	 * @param path         path of the archive
+	 * @param memberNames  family members, in the order their columns are written
+	 * @param capacity     pantry capacity of the run
+	 * @param seed         seed of the run
+	 *
+	 */
+	public RunArchiveWriter(String path, List<MemberName> memberNames, int capacity, int seed) throws IOException {
+		this.memberNames = memberNames;
+		this.headerSize = getHeaderSize(memberNames.size());
+		this.record = ByteBuffer.allocateDirect(getRecordSize(memberNames.size()));
+
+		channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = ByteBuffer.allocate(headerSize);
+		header.putInt(MAGIC).putInt(VERSION).putInt(0).putInt(memberNames.size()).putInt(capacity).putInt(seed);
+		for(MemberName memberName : memberNames)
+			header.put((byte) memberName.ordinal());
+		header.clear();
+		writeFully(header, 0);
+	}
+
+	/**
+	 * Append the record of the next week
+	 *
+	 * @param week         week number, one more than the last week written
+	 * @param planner      final planner of the week
+	 * @param mealHistory  history including the week
+	 *
+	 */
+	public void writeWeek(int week, Planner planner, MealHistory mealHistory) throws IOException {
+		if(week != numWeeks + 1)
+			throw new IllegalArgumentException("Week " + week + " is out of order; expected week " + (numWeeks + 1) + ".");
+
+		record.clear();
+		for(Day day : DAYS) {
+			for(MemberName memberName : memberNames) {
+				for(MealType mealType : MEAL_TYPES) {
+					FoodType foodType = planner.getMeal(day, memberName, mealType);
+					record.put(foodType == null ? NO_MEAL : (byte) foodType.ordinal());
+				}
+			}
+		}
+		record.position(align(record.position()));
+		for(MemberName memberName : memberNames)
+			record.putDouble(mealHistory.getSatisfaction(week, memberName));
+		for(MemberName memberName : memberNames)
+			record.putDouble(mealHistory.getAverageSatisfaction(week, memberName));
+		Pantry pantry = mealHistory.getPantry(week);
+		for(FoodType foodType : FOOD_TYPES)
+			record.putInt(pantry.getNumAvailableMeals(foodType));
+		record.clear();
+		writeFully(record, headerSize + (long) (week - 1) * record.capacity());
+
+		numWeeks = week;
+		numWeeksBuffer.clear();
+		numWeeksBuffer.putInt(numWeeks).flip();
+		writeFully(numWeeksBuffer, NUM_WEEKS_POSITION);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	static int getHeaderSize(int numMembers) {
+		return align(HEADER_FIELDS_SIZE + numMembers);
+	}
+
+	static int getMealsSize(int numMembers) {
+		return align(DAYS.length * numMembers * MEAL_TYPES.length);
+	}
+
+	static int getRecordSize(int numMembers) {
+		return getMealsSize(numMembers) + 2 * Double.BYTES * numMembers + Integer.BYTES * FOOD_TYPES.length;
+	}
+
+	private static int align(int size) {
+		return (size + 7) & ~7;
+	}
+
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+}
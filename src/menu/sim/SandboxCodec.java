@@ -0,0 +1,284 @@
+package menu.sim;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import menu.sim.Food.FoodType;
+import menu.sim.Food.MealType;
+
+/**
+ * Binary encoding of the state passed between the simulator and a sandboxed player.
+ *
+ * Enums are written as one-byte ordinals and counts as ints, so a week of history takes a few
+ * hundred bytes. Shopping lists use the same layout as {@link ShoppingListStore}, and planners
+ * write their codes directly. Maps are written in their iteration order and read back into new
+ * maps in the same order, so a player sees the same iteration order as it would in process.
+ * Writing past the end of the buffer throws a {@link java.nio.BufferOverflowException}, after
+ * which the caller grows the buffer and writes the message again.
+ */
+class SandboxCodec {
+
+	private static final Day[] DAYS = Day.values();
+	private static final MemberName[] MEMBER_NAMES = MemberName.values();
+	private static final MealType[] MEAL_TYPES = MealType.values();
+	private static final FoodType[] FOOD_TYPES = FoodType.values();
+
+	// Codes for values that may be missing
+	private static final byte ABSENT = 0;
+	private static final byte NULL = 1;
+	private static final byte PRESENT = 2;
+	private static final byte NULL_FOOD = -1;
+
+	private SandboxCodec() {
+	}
+
+	/**
+	 * Write the weeks of a history that the other process has not seen yet
+	 *
+	 * @param buffer       buffer to write to
+	 * @param mealHistory  history
+	 * @param firstWeek    first week to write
+	 * @param lastWeek     last week to write
+	 *
+	 */
+	static void writeHistoryWeeks(ByteBuffer buffer, MealHistory mealHistory, int firstWeek, int lastWeek) {
+		buffer.putInt(firstWeek).putInt(Math.max(lastWeek - firstWeek + 1, 0));
+		for(int week = firstWeek; week <= lastWeek; week++) {
+			writeShoppingList(buffer, mealHistory.getShoppingList(week));
+			writePlanner(buffer, mealHistory.getPlanner(week));
+			writePantry(buffer, mealHistory.getPantry(week));
+			writeSatisfactions(buffer, mealHistory.getAllSatisfactions().get(week));
+			writeSatisfactions(buffer, mealHistory.getAllAverageSatisfactions().get(week));
+		}
+	}
+
+	/**
+	 * Read weeks written by {@link #writeHistoryWeeks(ByteBuffer, MealHistory, int, int)} into a history
+	 *
+	 * @param buffer       buffer to read from
+	 * @param mealHistory  history to add the weeks to
+	 *
+	 */
+	static void readHistoryWeeks(ByteBuffer buffer, MealHistory mealHistory) {
+		int firstWeek = buffer.getInt();
+		int numWeeks = buffer.getInt();
+		for(int week = firstWeek; week < firstWeek + numWeeks; week++) {
+			ShoppingList shoppingList = readShoppingList(buffer);
+			if(shoppingList != null)
+				mealHistory.addShoppingList(week, shoppingList);
+			Planner planner = readPlanner(buffer);
+			if(planner != null)
+				mealHistory.addPlanner(week, planner);
+			Pantry pantry = readPantry(buffer);
+			if(pantry != null)
+				mealHistory.addPantry(week, pantry);
+			int numSatisfactions = buffer.getInt();
+			for(int i = 0; i < numSatisfactions; i++) {
+				MemberName memberName = MEMBER_NAMES[buffer.get()];
+				mealHistory.addSatisfaction(week, memberName, readDouble(buffer));
+			}
+			int numAverageSatisfactions = buffer.getInt();
+			for(int i = 0; i < numAverageSatisfactions; i++) {
+				MemberName memberName = MEMBER_NAMES[buffer.get()];
+				mealHistory.addAverageSatisfaction(week, memberName, readDouble(buffer));
+			}
+		}
+	}
+
+	static void writeFamilyMembers(ByteBuffer buffer, List<FamilyMember> familyMembers) {
+		buffer.putInt(familyMembers.size());
+		for(FamilyMember familyMember : familyMembers) {
+			buffer.put((byte) familyMember.getName().ordinal());
+
+			Map<FoodType, Double> foodPreferenceMap = familyMember.getFoodPreferenceMap();
+			buffer.putInt(foodPreferenceMap.size());
+			for(Map.Entry<FoodType, Double> entry : foodPreferenceMap.entrySet()) {
+				buffer.put((byte) entry.getKey().ordinal());
+				writeDouble(buffer, entry.getValue());
+			}
+
+			Map<Day, Map<MealType, FoodType>> assignedMealMap = familyMember.getAssignedMealMap();
+			buffer.putInt(assignedMealMap.size());
+			for(Map.Entry<Day, Map<MealType, FoodType>> dayEntry : assignedMealMap.entrySet()) {
+				buffer.put((byte) dayEntry.getKey().ordinal());
+				Map<MealType, FoodType> mealMap = dayEntry.getValue();
+				buffer.putInt(mealMap.size());
+				for(Map.Entry<MealType, FoodType> mealEntry : mealMap.entrySet()) {
+					buffer.put((byte) mealEntry.getKey().ordinal());
+					buffer.put(encodeFood(mealEntry.getValue()));
+				}
+			}
+
+			writeDouble(buffer, familyMember.getSatisfaction());
+		}
+	}
+
+	static List<FamilyMember> readFamilyMembers(ByteBuffer buffer) {
+		int numFamilyMembers = buffer.getInt();
+		List<FamilyMember> familyMembers = new ArrayList<>(numFamilyMembers);
+		for(int i = 0; i < numFamilyMembers; i++) {
+			FamilyMember familyMember = new FamilyMember(MEMBER_NAMES[buffer.get()]);
+
+			int numPreferences = buffer.getInt();
+			for(int j = 0; j < numPreferences; j++) {
+				FoodType foodType = FOOD_TYPES[buffer.get()];
+				familyMember.setFoodPreference(foodType, readDouble(buffer));
+			}
+
+			int numDays = buffer.getInt();
+			for(int j = 0; j < numDays; j++) {
+				Day day = DAYS[buffer.get()];
+				int numMeals = buffer.getInt();
+				for(int k = 0; k < numMeals; k++) {
+					MealType mealType = MEAL_TYPES[buffer.get()];
+					familyMember.assignMeal(day, mealType, decodeFood(buffer.get()));
+				}
+			}
+
+			familyMember.setSatisfaction(readDouble(buffer));
+			familyMembers.add(familyMember);
+		}
+		return familyMembers;
+	}
+
+	static void writePantry(ByteBuffer buffer, Pantry pantry) {
+		if(pantry == null) {
+			buffer.put(NULL);
+			return;
+		}
+		buffer.put(PRESENT);
+		buffer.putInt(pantry.getCapacity());
+		for(FoodType foodType : FOOD_TYPES)
+			buffer.putInt(pantry.getNumAvailableMeals(foodType));
+	}
+
+	static Pantry readPantry(ByteBuffer buffer) {
+		if(buffer.get() == NULL)
+			return null;
+		Pantry pantry = new Pantry(buffer.getInt());
+		for(FoodType foodType : FOOD_TYPES)
+			pantry.setCount(foodType, buffer.getInt());
+		return pantry;
+	}
+
+	static void writePlanner(ByteBuffer buffer, Planner planner) {
+		if(planner == null) {
+			buffer.put(NULL);
+			return;
+		}
+		buffer.put(PRESENT);
+		planner.writeTo(buffer);
+	}
+
+	static Planner readPlanner(ByteBuffer buffer) {
+		if(buffer.get() == NULL)
+			return null;
+		return Planner.readFrom(buffer);
+	}
+
+	static void writeShoppingList(ByteBuffer buffer, ShoppingList shoppingList) {
+		if(shoppingList == null) {
+			buffer.put(NULL);
+			return;
+		}
+		buffer.put(PRESENT);
+		Map<MealType, List<FoodType>> fullOrderMap = shoppingList.getFullOrderMap();
+		Map<MealType, Integer> allLimitsMap = shoppingList.getAllLimitsMap();
+		for(MealType mealType : MEAL_TYPES) {
+			Integer limit = allLimitsMap.get(mealType);
+			buffer.put(!allLimitsMap.containsKey(mealType) ? ABSENT : limit == null ? NULL : PRESENT);
+			buffer.putInt(limit == null ? 0 : limit);
+
+			List<FoodType> order = fullOrderMap.get(mealType);
+			FoodOrder foodOrder = order == null ? null : FoodOrder.of(order);
+			buffer.put(!fullOrderMap.containsKey(mealType) ? ABSENT : order == null ? NULL : PRESENT);
+			buffer.putInt(order == null ? 0 : foodOrder.getNumSegments());
+			if(foodOrder != null)
+				for(int segment = 0; segment < foodOrder.getNumSegments(); segment++)
+					buffer.put(encodeFood(foodOrder.getSegmentFood(segment))).putInt(foodOrder.getSegmentQuantity(segment));
+		}
+	}
+
+	static ShoppingList readShoppingList(ByteBuffer buffer) {
+		if(buffer.get() == NULL)
+			return null;
+
+		ShoppingList shoppingList = new ShoppingList();
+		Map<MealType, List<FoodType>> fullOrderMap = shoppingList.getFullOrderMap();
+		Map<MealType, Integer> allLimitsMap = shoppingList.getAllLimitsMap();
+		fullOrderMap.clear();
+		allLimitsMap.clear();
+		for(MealType mealType : MEAL_TYPES) {
+			byte limitCode = buffer.get();
+			int limit = buffer.getInt();
+			if(limitCode != ABSENT)
+				allLimitsMap.put(mealType, limitCode == NULL ? null : limit);
+
+			byte orderCode = buffer.get();
+			int numSegments = buffer.getInt();
+			if(orderCode == NULL)
+				fullOrderMap.put(mealType, null);
+			else if(orderCode == PRESENT) {
+				FoodOrder order = new FoodOrder();
+				for(int segment = 0; segment < numSegments; segment++) {
+					FoodType foodType = decodeFood(buffer.get());
+					order.add(foodType, buffer.getInt());
+				}
+				fullOrderMap.put(mealType, order);
+			}
+		}
+		return shoppingList;
+	}
+
+	static void writeString(ByteBuffer buffer, String string) {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length).put(bytes);
+	}
+
+	static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeSatisfactions(ByteBuffer buffer, Map<MemberName, Double> satisfactions) {
+		if(satisfactions == null) {
+			buffer.putInt(0);
+			return;
+		}
+		buffer.putInt(satisfactions.size());
+		for(Map.Entry<MemberName, Double> entry : satisfactions.entrySet()) {
+			buffer.put((byte) entry.getKey().ordinal());
+			writeDouble(buffer, entry.getValue());
+		}
+	}
+
+	private static void writeDouble(ByteBuffer buffer, Double value) {
+		if(value == null)
+			buffer.put(NULL);
+		else
+			buffer.put(PRESENT).putDouble(value);
+	}
+
+	/**
+	 * Read a value written by {@link #writeDouble(ByteBuffer, Double)}
+	 *
+	 * @param buffer  buffer to read from
+	 * @return        value, or null if it was null or missing
+	 *
+	 */
+	private static Double readDouble(ByteBuffer buffer) {
+		return buffer.get() == PRESENT ? buffer.getDouble() : null;
+	}
+
+	private static byte encodeFood(FoodType foodType) {
+		return foodType == null ? NULL_FOOD : (byte) foodType.ordinal();
+	}
+
+	private static FoodType decodeFood(byte foodCode) {
+		return foodCode == NULL_FOOD ? null : FOOD_TYPES[foodCode];
+	}
+}
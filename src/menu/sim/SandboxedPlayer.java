@@ -0,0 +1,321 @@
+package menu.sim;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Player that runs a team's player in a child JVM.
+ *
+ * A player that leaks memory, loops forever or exits only takes down its own process. The
+ * child, a {@link PlayerHost}, is started with the simulator's class path and JVM options and
+ * talks to this player over a Unix domain socket, which only carries fixed-size headers: the
+ * state of each call and its result are written to a memory-mapped {@link SharedBuffer} in the
+ * encoding of {@link SandboxCodec}. The child keeps its own copy of the meal history, so each
+ * call only sends the weeks added since the last one. Each response starts with the CPU time and
+ * bytes allocated by the call in the child, which are kept for the {@link PlayerWrapper}'s statistics.
+ *
+ * If a call fails because the child died or the call was interrupted after a timeout, the child
+ * is killed, and a new one is started on the next call with the whole history; the player's own
+ * state is lost when that happens.
+ */
+public class SandboxedPlayer extends Player implements Closeable {
+
+	// Control messages: [operation or status][length of the message in the shared buffer]
+	static final int STOCK_PANTRY = 1;
+	static final int PLAN_MEALS = 2;
+	static final int SHUTDOWN = 3;
+	static final int OK = 0;
+	static final int ERROR = 1;
+	static final int HEADER_SIZE = 8;
+
+	private static final long STARTUP_TIMEOUT = 30000;
+	private static final long SHUTDOWN_TIMEOUT = 1000;
+	private static final String[] EXCLUDED_JVM_OPTIONS = {"-agentlib", "-agentpath", "-javaagent", "-Xdebug", "-Xrunjdwp"};
+
+	private String teamName;
+	private boolean enablePrints;
+	private Path directory;
+	private Process process;
+	private SocketChannel channel;
+	private SharedBuffer sharedBuffer;
+	private ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE);
+	private int sentWeeks = 0;
+	private int numStarts = 0;
+	private volatile long cpuTime = -1, allocatedBytes = -1;
+
+	/**
+	 * Sandboxed player constructor
+	 *
+	 * @param teamName          team name of the player to run
+	 * @param weeks             number of weeks
+	 * @param numFamilyMembers  number of family members
+	 * @param capacity          pantry capacity
+	 * @param seed              random seed
+	 * @param enablePrints      whether the player's prints are enabled
+	 *
+	 */
+	public SandboxedPlayer(String teamName, Integer weeks, Integer numFamilyMembers, Integer capacity, Integer seed, boolean enablePrints) throws IOException {
+		super(weeks, numFamilyMembers, capacity, seed, new SimPrinter(enablePrints));
+		this.teamName = teamName;
+		this.enablePrints = enablePrints;
+		this.directory = Files.createTempDirectory("menu-sandbox-");
+		try {
+			start();
+		} catch(IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public synchronized ShoppingList stockPantry(Integer week, Integer numEmptySlots, List<FamilyMember> familyMembers, Pantry pantry, MealHistory mealHistory) {
+		return call(STOCK_PANTRY, week, mealHistory, buffer -> {
+			buffer.putInt(numEmptySlots);
+			SandboxCodec.writeFamilyMembers(buffer, familyMembers);
+			SandboxCodec.writePantry(buffer, pantry);
+		}, SandboxCodec::readShoppingList);
+	}
+
+	@Override
+	public synchronized Planner planMeals(Integer week, List<FamilyMember> familyMembers, Pantry pantry, MealHistory mealHistory) {
+		return call(PLAN_MEALS, week, mealHistory, buffer -> {
+			SandboxCodec.writeFamilyMembers(buffer, familyMembers);
+			SandboxCodec.writePantry(buffer, pantry);
+		}, SandboxCodec::readPlanner);
+	}
+
+	/**
+	 * Send a call to the child and wait for its result
+	 *
+	 * Every request starts with the week, the remaining time budget in nanoseconds (-1 if the run
+	 * has no time budget) and the weeks of history that the child has not seen yet, followed by
+	 * the arguments of the call.
+	 *
+	 * @param operation    operation of the call
+	 * @param week         current week
+	 * @param mealHistory  history of previous meal allocations
+	 * @param arguments    writes the other arguments of the call
+	 * @param result       reads the result of the call
+	 * @return             result of the call
+	 * @throws             UncheckedIOException if the child could not be reached
+	 * @throws             RuntimeException if the player threw an exception
+	 *
+	 */
+	private <T> T call(int operation, Integer week, MealHistory mealHistory, Consumer<ByteBuffer> arguments, Function<ByteBuffer, T> result) {
+		cpuTime = -1;
+		allocatedBytes = -1;
+		try {
+			if(process == null || !process.isAlive()) {
+				Log.error("Team {}'s player process has stopped; starting a new one.", teamName);
+				stop();
+				start();
+			}
+
+			TimeBudget timeBudget = getTimeBudget();
+			long remainingBudget = timeBudget == null ? -1 : timeBudget.getRemainingNanos();
+			int lastWeek = week - 1;
+			int length = sharedBuffer.write(buffer -> {
+				buffer.putInt(week);
+				buffer.putLong(remainingBudget);
+				SandboxCodec.writeHistoryWeeks(buffer, mealHistory, sentWeeks + 1, lastWeek);
+				arguments.accept(buffer);
+			});
+			writeHeader(channel, header, operation, length);
+			sentWeeks = Math.max(sentWeeks, lastWeek);
+
+			if(!readHeader(channel, header))
+				throw new IOException("Team " + teamName + "'s player process exited.");
+			ByteBuffer buffer = sharedBuffer.forReading(header.getInt(4));
+			cpuTime = buffer.getLong();
+			allocatedBytes = buffer.getLong();
+			if(header.getInt(0) == ERROR)
+				throw new RuntimeException(SandboxCodec.readString(buffer));
+			return result.apply(buffer);
+		} catch(IOException e) {
+			// The child may be in the middle of a call, so it cannot be reused
+			stop();
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Start the child and wait for it to connect
+	 */
+	private void start() throws IOException {
+		Path socketPath = directory.resolve("control.sock");
+		Path bufferPath = directory.resolve("state.bin");
+		Files.deleteIfExists(socketPath);
+		sharedBuffer = new SharedBuffer(bufferPath);
+
+		try(ServerSocketChannel serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			serverChannel.bind(UnixDomainSocketAddress.of(socketPath));
+			serverChannel.configureBlocking(false);
+
+			List<String> command = new ArrayList<>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			for(String option : ManagementFactory.getRuntimeMXBean().getInputArguments())
+				if(!isExcluded(option))
+					command.add(option);
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(PlayerHost.class.getName());
+			command.add(teamName);
+			command.add(String.valueOf(weeks));
+			command.add(String.valueOf(numFamilyMembers));
+			command.add(String.valueOf(capacity));
+			command.add(String.valueOf(seed));
+			command.add(String.valueOf(enablePrints));
+			command.add(socketPath.toString());
+			command.add(bufferPath.toString());
+			process = new ProcessBuilder(command).directory(new File(System.getProperty("user.dir"))).inheritIO().start();
+			numStarts++;
+
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STARTUP_TIMEOUT);
+			while((channel = serverChannel.accept()) == null) {
+				if(!process.isAlive())
+					throw new IOException("Team " + teamName + "'s player process exited with code " + process.exitValue() + "!");
+				if(System.nanoTime() > deadline)
+					throw new IOException("Team " + teamName + "'s player process did not start in time!");
+				try {
+					Thread.sleep(1);
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while starting team " + teamName + "'s player process!", e);
+				}
+			}
+			channel.configureBlocking(true);
+		} catch(IOException e) {
+			stop();
+			throw e;
+		} finally {
+			Files.deleteIfExists(socketPath);
+		}
+		sentWeeks = 0;
+	}
+
+	/**
+	 * Kill the child, if any, and release its channel and shared buffer
+	 */
+	private void stop() {
+		if(process != null)
+			process.destroyForcibly();
+		closeQuietly(channel);
+		closeQuietly(sharedBuffer);
+		process = null;
+		channel = null;
+		sharedBuffer = null;
+	}
+
+	/**
+	 * CPU time used by the player in the child during the last call, in nanoseconds, or -1 if not measured
+	 */
+	public long getCpuTime() {
+		return cpuTime;
+	}
+
+	/**
+	 * Bytes allocated by the player in the child during the last call, or -1 if not measured
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Number of child processes started so far, including the first one
+	 */
+	public synchronized int getNumStarts() {
+		return numStarts;
+	}
+
+	/**
+	 * Ask the child to exit, kill it if it does not, and delete the shared files
+	 */
+	@Override
+	public synchronized void close() {
+		if(process != null && channel != null) {
+			try {
+				writeHeader(channel, header, SHUTDOWN, 0);
+				process.waitFor(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+			} catch(IOException e) {
+				// The child is killed below
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		stop();
+		try {
+			Files.deleteIfExists(directory.resolve("state.bin"));
+			Files.deleteIfExists(directory);
+		} catch(IOException e) {
+			Log.error("Cannot delete the sandbox directory {}: {}", directory, e.getMessage());
+		}
+	}
+
+	/**
+	 * Write a control message
+	 *
+	 * @param channel  control channel
+	 * @param header   buffer of {@link #HEADER_SIZE} bytes for the message
+	 * @param code     operation or status
+	 * @param length   length of the message in the shared buffer
+	 *
+	 */
+	static void writeHeader(SocketChannel channel, ByteBuffer header, int code, int length) throws IOException {
+		header.clear();
+		header.putInt(code).putInt(length).flip();
+		while(header.hasRemaining())
+			channel.write(header);
+	}
+
+	/**
+	 * Read a control message into the header buffer
+	 *
+	 * @param channel  control channel
+	 * @param header   buffer of {@link #HEADER_SIZE} bytes for the message
+	 * @return         true if a message was read, or false if the channel was closed before one
+	 *
+	 */
+	static boolean readHeader(SocketChannel channel, ByteBuffer header) throws IOException {
+		header.clear();
+		while(header.hasRemaining()) {
+			if(channel.read(header) < 0) {
+				if(header.position() == 0)
+					return false;
+				throw new IOException("The control message was cut off!");
+			}
+		}
+		return true;
+	}
+
+	private static boolean isExcluded(String option) {
+		for(String excludedOption : EXCLUDED_JVM_OPTIONS)
+			if(option.startsWith(excludedOption))
+				return true;
+		return false;
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if(closeable == null)
+			return;
+		try {
+			closeable.close();
+		} catch(IOException e) {
+			// Nothing more can be done with it
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package menu.sim;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Compact storage of one satisfaction value per family member per week.
+ *
+ * Every member that appears gets a double array of values by week and a byte array saying
+ * which weeks hold a value. Weeks are numbered from 1. Snapshots share the arrays in the same
+ * way as {@link MealStore}.
+ */
+class SatisfactionStore implements Serializable {
+
+	private static final MemberName[] MEMBER_NAMES = MemberName.values();
+	private static final int INITIAL_WEEKS = 64;
+
+	// Codes for members in a week
+	private static final byte ABSENT = 0;
+	private static final byte NULL = 1;
+	private static final byte PRESENT = 2;
+
+	private byte[] weekCodes = new byte[INITIAL_WEEKS];
+	private byte[][] memberCodes = new byte[MEMBER_NAMES.length][];
+	private double[][] memberValues = new double[MEMBER_NAMES.length][];
+	private int numWeeks = 0;
+	private int sharedWeeks = 0;
+
+	/**
+	 * Create a snapshot that shares this store's arrays
+	 *
+	 * @return  snapshot showing the weeks recorded so far
+	 *
+	 */
+	SatisfactionStore snapshot() {
+		SatisfactionStore snapshot = new SatisfactionStore();
+		snapshot.weekCodes = weekCodes;
+		snapshot.memberCodes = memberCodes.clone();
+		snapshot.memberValues = memberValues.clone();
+		snapshot.numWeeks = numWeeks;
+		snapshot.sharedWeeks = Integer.MAX_VALUE;
+		sharedWeeks = numWeeks;
+		return snapshot;
+	}
+
+	int getNumWeeks() {
+		return numWeeks;
+	}
+
+	boolean containsWeek(int week) {
+		return week >= 1 && week <= numWeeks && weekCodes[week - 1] != ABSENT;
+	}
+
+	boolean containsMember(int week, MemberName memberName) {
+		return getMemberCode(week, memberName) != ABSENT;
+	}
+
+	Double getValue(int week, MemberName memberName) {
+		if(getMemberCode(week, memberName) != PRESENT)
+			return null;
+		return memberValues[memberName.ordinal()][week - 1];
+	}
+
+	/**
+	 * Record the satisfaction of a member in a week
+	 *
+	 * @param week        week number
+	 * @param memberName  family member
+	 * @param value       satisfaction, or null
+	 *
+	 */
+	void putValue(int week, MemberName memberName, Double value) {
+		prepareWrite(week);
+		if(weekCodes.length < week)
+			weekCodes = Arrays.copyOf(weekCodes, Math.max(weekCodes.length * 2, week));
+		weekCodes[week - 1] = PRESENT;
+		numWeeks = Math.max(numWeeks, week);
+
+		int memberIndex = memberName.ordinal();
+		if(memberCodes[memberIndex] == null || memberCodes[memberIndex].length < week) {
+			int length = memberCodes[memberIndex] == null ? INITIAL_WEEKS : Math.max(memberCodes[memberIndex].length * 2, week);
+			memberCodes[memberIndex] = memberCodes[memberIndex] == null ? new byte[length] : Arrays.copyOf(memberCodes[memberIndex], length);
+			memberValues[memberIndex] = memberValues[memberIndex] == null ? new double[length] : Arrays.copyOf(memberValues[memberIndex], length);
+		}
+		memberCodes[memberIndex][week - 1] = value == null ? NULL : PRESENT;
+		memberValues[memberIndex][week - 1] = value == null ? 0 : value;
+	}
+
+	private byte getMemberCode(int week, MemberName memberName) {
+		if(!containsWeek(week))
+			return ABSENT;
+		byte[] codes = memberCodes[memberName.ordinal()];
+		if(codes == null || codes.length < week)
+			return ABSENT;
+		return codes[week - 1];
+	}
+
+	// Copy the arrays before changing a week that a snapshot can still see
+	private void prepareWrite(int week) {
+		if(week < 1)
+			throw new IllegalArgumentException("Weeks are numbered from 1.");
+		if(week > sharedWeeks)
+			return;
+
+		byte[] sharedWeekCodes = weekCodes;
+		weekCodes = new byte[Math.max(numWeeks, INITIAL_WEEKS)];
+		System.arraycopy(sharedWeekCodes, 0, weekCodes, 0, numWeeks);
+		memberCodes = memberCodes.clone();
+		memberValues = memberValues.clone();
+		for(int i = 0; i < memberCodes.length; i++) {
+			if(memberCodes[i] == null)
+				continue;
+			int length = Math.min(memberCodes[i].length, numWeeks);
+			memberCodes[i] = Arrays.copyOf(memberCodes[i], length);
+			memberValues[i] = Arrays.copyOf(memberValues[i], length);
+		}
+		sharedWeeks = 0;
+	}
+}
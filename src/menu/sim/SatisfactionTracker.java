@@ -0,0 +1,55 @@
+package menu.sim;
+
+import java.util.List;
+
+/**
+ * Running satisfaction totals for each family member.
+ *
+ * Each week adds one satisfaction per member to a running total, so the average satisfaction
+ * and the least satisfied member are kept current in O(members) per week, no matter how many
+ * weeks have already been simulated.
+ */
+class SatisfactionTracker {
+
+	private static final int NUM_MEMBERS = MemberName.values().length;
+
+	private double[] totalSatisfactions = new double[NUM_MEMBERS];
+	private int[] numWeeks = new int[NUM_MEMBERS];
+	private double[] averageSatisfactions = new double[NUM_MEMBERS];
+	private double leastAverageSatisfaction = Double.MAX_VALUE;
+	private MemberName leastSatisfiedMember;
+
+	/**
+	 * Add a week of satisfactions and update the least satisfied member
+	 *
+	 * @param familyMembers  all family members, holding their satisfaction for the week
+	 *
+	 */
+	void addWeek(List<FamilyMember> familyMembers) {
+		leastAverageSatisfaction = Double.MAX_VALUE;
+		leastSatisfiedMember = null;
+		for(FamilyMember familyMember : familyMembers) {
+			int memberIndex = familyMember.getName().ordinal();
+			totalSatisfactions[memberIndex] += familyMember.getSatisfaction();
+			numWeeks[memberIndex]++;
+			averageSatisfactions[memberIndex] = totalSatisfactions[memberIndex] / numWeeks[memberIndex];
+
+			if(averageSatisfactions[memberIndex] < leastAverageSatisfaction) {
+				leastAverageSatisfaction = averageSatisfactions[memberIndex];
+				leastSatisfiedMember = familyMember.getName();
+			}
+		}
+	}
+
+	double getAverageSatisfaction(MemberName memberName) {
+		return averageSatisfactions[memberName.ordinal()];
+	}
+
+	double getLeastAverageSatisfaction() {
+		return leastAverageSatisfaction;
+	}
+
+	MemberName getLeastSatisfiedMember() {
+		return leastSatisfiedMember;
+	}
+}
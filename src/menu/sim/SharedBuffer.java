@@ -0,0 +1,94 @@
+package menu.sim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Memory-mapped file shared by the simulator and a sandboxed player's process.
+ *
+ * Both processes map the same file and take turns writing a message to the start of it; which
+ * process may write, and how long the message is, is agreed over the sandbox's control channel.
+ * A message longer than the mapping grows the file, and the other process maps the file again
+ * when it is told that a message is longer than its own mapping.
+ */
+class SharedBuffer implements Closeable {
+
+	private static final int INITIAL_SIZE = 1 << 16;
+
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Shared buffer constructor
+	 *
+	 * @param path  path of the shared file, which is created if it does not exist
+	 *
+	 */
+	SharedBuffer(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_SIZE));
+	}
+
+	/**
+	 * Write a message to the start of the buffer, growing the buffer until the message fits
+	 *
+	 * @param writer  writes the message, possibly several times
+	 * @return        length of the message in bytes
+	 *
+	 */
+	int write(Consumer<ByteBuffer> writer) throws IOException {
+		while(true) {
+			buffer.clear();
+			try {
+				writer.accept(buffer);
+				return buffer.position();
+			} catch(BufferOverflowException e) {
+				if(buffer.capacity() == Integer.MAX_VALUE)
+					throw new IOException("The message is too long!", e);
+				ensureCapacity(buffer.capacity() + 1);
+			}
+		}
+	}
+
+	/**
+	 * Get the buffer to read a message from, limited to the message
+	 *
+	 * @param length  length of the message in bytes
+	 * @return        buffer
+	 *
+	 */
+	MappedByteBuffer forReading(int length) throws IOException {
+		if(length < 0)
+			throw new IOException("Invalid message length " + length + "!");
+		ensureCapacity(length);
+		buffer.clear().limit(length);
+		return buffer;
+	}
+
+	/**
+	 * Map the file again if it is smaller than the given size, growing it if needed
+	 *
+	 * The contents of the buffer are kept, but its position is reset.
+	 *
+	 * @param size  size in bytes
+	 *
+	 */
+	void ensureCapacity(int size) throws IOException {
+		if(size <= buffer.capacity())
+			return;
+		long newSize = Math.max(size, Math.min(2L * buffer.capacity(), Integer.MAX_VALUE));
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
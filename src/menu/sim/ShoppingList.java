@@ -1,14 +1,15 @@
 package menu.sim;
 
+import java.io.Serializable;
+import java.util.Collections;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
-import java.util.ArrayList;
 
 import menu.sim.Food.MealType;
 import menu.sim.Food.FoodType;
 
-public class ShoppingList {
+public class ShoppingList implements Serializable {
 	private Map<MealType, List<FoodType>> fullOrderMap;
 	private Map<MealType, Integer> allLimitsMap;
 	
@@ -16,7 +17,7 @@ public class ShoppingList {
 		fullOrderMap = new HashMap<>();
 		allLimitsMap = new HashMap<>();
 		for(MealType mealType : Food.getAllMealTypes()) {
-			fullOrderMap.put(mealType, new ArrayList<>());
+			fullOrderMap.put(mealType, new FoodOrder());
 			allLimitsMap.put(mealType, 0);
 		}
 	}
@@ -40,8 +41,40 @@ public class ShoppingList {
 	public void addToOrder(FoodType foodType) {
 		fullOrderMap.get(Food.getMealType(foodType)).add(foodType);
 	}
+
+	/**
+	 * Order a food several times in a row
+	 *
+	 * Orders are stored as {@link FoodOrder} segments, so this adds a single segment whatever
+	 * the quantity.
+	 *
+	 * @param foodType  food to order
+	 * @param quantity  number of meals to order
+	 *
+	 */
+	public void addToOrder(FoodType foodType, int quantity) {
+		if(quantity < 0)
+			throw new IllegalArgumentException("The quantity cannot be negative!");
+		List<FoodType> order = fullOrderMap.get(Food.getMealType(foodType));
+		if(order instanceof FoodOrder)
+			((FoodOrder) order).add(foodType, quantity);
+		else
+			order.addAll(Collections.nCopies(quantity, foodType));
+	}
 	
 	public void addLimit(MealType mealType, Integer limit) {
 		allLimitsMap.put(mealType, limit);
 	}
+	
+	public ShoppingList clone() {
+		ShoppingList shoppingList = new ShoppingList();
+		shoppingList.fullOrderMap.clear();
+		for(MealType mealType : fullOrderMap.keySet()) {
+			List<FoodType> order = fullOrderMap.get(mealType);
+			shoppingList.fullOrderMap.put(mealType, order == null ? null : new FoodOrder(order));
+		}
+		shoppingList.allLimitsMap.clear();
+		shoppingList.allLimitsMap.putAll(allLimitsMap);
+		return shoppingList;
+	}
 }
@@ -0,0 +1,176 @@
+package menu.sim;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import menu.sim.Food.FoodType;
+import menu.sim.Food.MealType;
+
+/**
+ * Compact storage of the shopping list of each week.
+ *
+ * Shopping lists are encoded one after another into a single byte array: for each meal type,
+ * the order limit followed by the number of {@link FoodOrder} segments of the order, and one
+ * byte for the food and an int for the quantity of each segment. A second
+ * array holds where each week's list starts. Weeks are numbered from 1. Encoded lists are never
+ * overwritten, so snapshots share the arrays in the same way as {@link MealStore}.
+ */
+class ShoppingListStore implements Serializable {
+
+	private static final MealType[] MEAL_TYPES = MealType.values();
+	private static final FoodType[] FOOD_TYPES = FoodType.values();
+	private static final int INITIAL_WEEKS = 64;
+	private static final int INITIAL_DATA_SIZE = 4096;
+
+	// Codes for limits and orders; starts hold the offset of a list plus FIRST_OFFSET
+	private static final byte ABSENT = 0;
+	private static final byte NULL = 1;
+	private static final byte PRESENT = 2;
+	private static final byte NULL_FOOD = -1;
+	private static final int FIRST_OFFSET = 2;
+
+	private int[] starts = new int[INITIAL_WEEKS];
+	private byte[] data = new byte[INITIAL_DATA_SIZE];
+	private int dataSize = 0;
+	private int numWeeks = 0;
+	private int sharedWeeks = 0;
+
+	/**
+	 * Create a snapshot that shares this store's arrays
+	 *
+	 * @return  snapshot showing the weeks recorded so far
+	 *
+	 */
+	ShoppingListStore snapshot() {
+		ShoppingListStore snapshot = new ShoppingListStore();
+		snapshot.starts = starts;
+		snapshot.data = data;
+		snapshot.dataSize = dataSize;
+		snapshot.numWeeks = numWeeks;
+		snapshot.sharedWeeks = Integer.MAX_VALUE;
+		sharedWeeks = numWeeks;
+		return snapshot;
+	}
+
+	int getNumWeeks() {
+		return numWeeks;
+	}
+
+	boolean containsWeek(int week) {
+		return week >= 1 && week <= numWeeks && starts[week - 1] != ABSENT;
+	}
+
+	/**
+	 * Get the shopping list of a week
+	 *
+	 * @param week  week number
+	 * @return      new shopping list with the recorded orders, or null if there is none
+	 *
+	 */
+	ShoppingList getShoppingList(int week) {
+		if(!containsWeek(week) || starts[week - 1] == NULL)
+			return null;
+
+		ShoppingList shoppingList = new ShoppingList();
+		Map<MealType, List<FoodType>> fullOrderMap = shoppingList.getFullOrderMap();
+		Map<MealType, Integer> allLimitsMap = shoppingList.getAllLimitsMap();
+		fullOrderMap.clear();
+		allLimitsMap.clear();
+
+		int position = starts[week - 1] - FIRST_OFFSET;
+		for(MealType mealType : MEAL_TYPES) {
+			byte limitCode = data[position++];
+			if(limitCode != ABSENT)
+				allLimitsMap.put(mealType, limitCode == NULL ? null : readInt(position));
+			position += 4;
+
+			byte orderCode = data[position++];
+			int numSegments = readInt(position);
+			position += 4;
+			if(orderCode == NULL)
+				fullOrderMap.put(mealType, null);
+			else if(orderCode == PRESENT) {
+				FoodOrder order = new FoodOrder();
+				for(int segment = 0; segment < numSegments; segment++) {
+					byte foodCode = data[position++];
+					order.add(foodCode == NULL_FOOD ? null : FOOD_TYPES[foodCode], readInt(position));
+					position += 4;
+				}
+				fullOrderMap.put(mealType, order);
+			}
+		}
+		return shoppingList;
+	}
+
+	/**
+	 * Record the shopping list of a week
+	 *
+	 * @param week          week number
+	 * @param shoppingList  shopping list, or null
+	 *
+	 */
+	void putShoppingList(int week, ShoppingList shoppingList) {
+		if(week < 1)
+			throw new IllegalArgumentException("Weeks are numbered from 1.");
+		if(week <= sharedWeeks) {
+			// Copy the arrays before changing a week that a snapshot can still see
+			starts = Arrays.copyOf(starts, Math.max(numWeeks, INITIAL_WEEKS));
+			Arrays.fill(starts, numWeeks, starts.length, ABSENT);
+			data = Arrays.copyOf(data, Math.max(dataSize, INITIAL_DATA_SIZE));
+			sharedWeeks = 0;
+		}
+		if(starts.length < week)
+			starts = Arrays.copyOf(starts, Math.max(starts.length * 2, week));
+		numWeeks = Math.max(numWeeks, week);
+
+		if(shoppingList == null) {
+			starts[week - 1] = NULL;
+			return;
+		}
+
+		Map<MealType, List<FoodType>> fullOrderMap = shoppingList.getFullOrderMap();
+		Map<MealType, Integer> allLimitsMap = shoppingList.getAllLimitsMap();
+		FoodOrder[] orders = new FoodOrder[MEAL_TYPES.length];
+		int size = 0;
+		for(MealType mealType : MEAL_TYPES) {
+			List<FoodType> order = fullOrderMap.get(mealType);
+			if(order != null)
+				orders[mealType.ordinal()] = FoodOrder.of(order);
+			size += 10 + (order == null ? 0 : 5 * orders[mealType.ordinal()].getNumSegments());
+		}
+		if(data.length < dataSize + size)
+			data = Arrays.copyOf(data, Math.max(data.length * 2, dataSize + size));
+
+		starts[week - 1] = dataSize + FIRST_OFFSET;
+		for(MealType mealType : MEAL_TYPES) {
+			Integer limit = allLimitsMap.get(mealType);
+			data[dataSize++] = !allLimitsMap.containsKey(mealType) ? ABSENT : limit == null ? NULL : PRESENT;
+			writeInt(limit == null ? 0 : limit);
+
+			FoodOrder order = orders[mealType.ordinal()];
+			data[dataSize++] = !fullOrderMap.containsKey(mealType) ? ABSENT : order == null ? NULL : PRESENT;
+			writeInt(order == null ? 0 : order.getNumSegments());
+			if(order == null)
+				continue;
+			for(int segment = 0; segment < order.getNumSegments(); segment++) {
+				FoodType foodType = order.getSegmentFood(segment);
+				data[dataSize++] = foodType == null ? NULL_FOOD : (byte) foodType.ordinal();
+				writeInt(order.getSegmentQuantity(segment));
+			}
+		}
+	}
+
+	private int readInt(int position) {
+		return ((data[position] & 0xFF) << 24) | ((data[position + 1] & 0xFF) << 16)
+				| ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
+	}
+
+	private void writeInt(int value) {
+		data[dataSize++] = (byte) (value >>> 24);
+		data[dataSize++] = (byte) (value >>> 16);
+		data[dataSize++] = (byte) (value >>> 8);
+		data[dataSize++] = (byte) value;
+	}
+}
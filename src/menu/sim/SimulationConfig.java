@@ -0,0 +1,284 @@
+package menu.sim;
+
+import java.io.File;
+import java.util.List;
+
+public class SimulationConfig {
+
+	// Simulator inputs
+	private String teamName, configName;
+	private int seed = 42;
+	private int weeks = 52;
+	private int numFamilyMembers = 3;
+	private int capacity = 100;
+	private double fpm = 15;
+	private boolean showGUI = false;
+	private boolean continuousGUI = true;
+	private boolean exportCSV = false;
+	private String mealsPath, plannersPath, pantriesPath, satisfactionPath;
+	private String archivePath;
+	private List<Integer> sweepSeeds;
+	private int sweepThreads = Runtime.getRuntime().availableProcessors();
+	private boolean sweepRun = false;
+
+	// Defaults
+	private boolean enablePrints = false;
+	private long timeout = 1000;
+	private boolean cpuTimeout = false;
+	private long timeBudget = 0;
+	private boolean warmup = false;
+	private boolean sandbox = false;
+	private String projectPath, sourcePath, staticsPath;
+
+	public SimulationConfig() {
+		projectPath = new File(".").getAbsolutePath().substring(0,
+				new File(".").getAbsolutePath().indexOf("coms4444-menu") + "coms4444-menu".length());
+		sourcePath = projectPath + File.separator + "src";
+		staticsPath = projectPath + File.separator + "statics";
+	}
+
+	public SimulationConfig copy() {
+		SimulationConfig config = new SimulationConfig();
+		config.teamName = teamName;
+		config.configName = configName;
+		config.seed = seed;
+		config.weeks = weeks;
+		config.numFamilyMembers = numFamilyMembers;
+		config.capacity = capacity;
+		config.fpm = fpm;
+		config.showGUI = showGUI;
+		config.continuousGUI = continuousGUI;
+		config.exportCSV = exportCSV;
+		config.mealsPath = mealsPath;
+		config.plannersPath = plannersPath;
+		config.pantriesPath = pantriesPath;
+		config.satisfactionPath = satisfactionPath;
+		config.archivePath = archivePath;
+		config.sweepSeeds = sweepSeeds;
+		config.sweepThreads = sweepThreads;
+		config.sweepRun = sweepRun;
+		config.enablePrints = enablePrints;
+		config.timeout = timeout;
+		config.cpuTimeout = cpuTimeout;
+		config.timeBudget = timeBudget;
+		config.warmup = warmup;
+		config.sandbox = sandbox;
+		config.projectPath = projectPath;
+		config.sourcePath = sourcePath;
+		config.staticsPath = staticsPath;
+		return config;
+	}
+
+	public String getTeamName() {
+		return teamName;
+	}
+
+	public void setTeamName(String teamName) {
+		this.teamName = teamName;
+	}
+
+	public String getConfigName() {
+		return configName;
+	}
+
+	public void setConfigName(String configName) {
+		this.configName = configName;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	public void setSeed(int seed) {
+		this.seed = seed;
+	}
+
+	public int getWeeks() {
+		return weeks;
+	}
+
+	public void setWeeks(int weeks) {
+		this.weeks = weeks;
+	}
+
+	public int getNumFamilyMembers() {
+		return numFamilyMembers;
+	}
+
+	public void setNumFamilyMembers(int numFamilyMembers) {
+		this.numFamilyMembers = numFamilyMembers;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public double getFPM() {
+		return fpm;
+	}
+
+	public void setFPM(double fpm) {
+		this.fpm = fpm;
+	}
+
+	public boolean isGUIEnabled() {
+		return showGUI;
+	}
+
+	public void setGUIEnabled(boolean showGUI) {
+		this.showGUI = showGUI;
+	}
+
+	public boolean isContinuousGUI() {
+		return continuousGUI;
+	}
+
+	public void setContinuousGUI(boolean continuousGUI) {
+		this.continuousGUI = continuousGUI;
+	}
+
+	public boolean isExportEnabled() {
+		return exportCSV;
+	}
+
+	public void setExportPaths(String mealsPath, String plannersPath, String pantriesPath, String satisfactionPath) {
+		this.exportCSV = true;
+		this.mealsPath = mealsPath;
+		this.plannersPath = plannersPath;
+		this.pantriesPath = pantriesPath;
+		this.satisfactionPath = satisfactionPath;
+	}
+
+	public String getMealsPath() {
+		return mealsPath;
+	}
+
+	public String getPlannersPath() {
+		return plannersPath;
+	}
+
+	public String getPantriesPath() {
+		return pantriesPath;
+	}
+
+	public String getSatisfactionPath() {
+		return satisfactionPath;
+	}
+
+	/**
+	 * Path of the binary run archive, or null if no archive is written
+	 */
+	public String getArchivePath() {
+		return archivePath;
+	}
+
+	public void setArchivePath(String archivePath) {
+		this.archivePath = archivePath;
+	}
+
+	/**
+	 * Seeds of a multi-seed sweep, or null for a single run with {@link #getSeed()}
+	 */
+	public List<Integer> getSweepSeeds() {
+		return sweepSeeds;
+	}
+
+	public void setSweepSeeds(List<Integer> sweepSeeds) {
+		this.sweepSeeds = sweepSeeds;
+	}
+
+	public int getSweepThreads() {
+		return sweepThreads;
+	}
+
+	public void setSweepThreads(int sweepThreads) {
+		this.sweepThreads = sweepThreads;
+	}
+
+	/**
+	 * Whether the run is one of a sweep's runs, which leaves reporting to the sweep
+	 */
+	public boolean isSweepRun() {
+		return sweepRun;
+	}
+
+	public void setSweepRun(boolean sweepRun) {
+		this.sweepRun = sweepRun;
+	}
+
+	public boolean arePrintsEnabled() {
+		return enablePrints;
+	}
+
+	public void setPrintsEnabled(boolean enablePrints) {
+		this.enablePrints = enablePrints;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Whether the player timeout applies to the CPU time of each call rather than its wall-clock time
+	 */
+	public boolean isCPUTimeout() {
+		return cpuTimeout;
+	}
+
+	public void setCPUTimeout(boolean cpuTimeout) {
+		this.cpuTimeout = cpuTimeout;
+	}
+
+	/**
+	 * Time pool shared by all player calls of a run, in milliseconds, or 0 to limit each call to the timeout
+	 */
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	public void setTimeBudget(long timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * Whether throwaway copies of the player are run on synthetic weeks until the JIT settles before the run
+	 */
+	public boolean isWarmupEnabled() {
+		return warmup;
+	}
+
+	public void setWarmupEnabled(boolean warmup) {
+		this.warmup = warmup;
+	}
+
+	/**
+	 * Whether the player runs in a child JVM instead of the simulator's
+	 */
+	public boolean isSandboxEnabled() {
+		return sandbox;
+	}
+
+	public void setSandboxEnabled(boolean sandbox) {
+		this.sandbox = sandbox;
+	}
+
+	public String getProjectPath() {
+		return projectPath;
+	}
+
+	public String getSourcePath() {
+		return sourcePath;
+	}
+
+	public String getStaticsPath() {
+		return staticsPath;
+	}
+}
@@ -0,0 +1,816 @@
+package menu.sim;
+
+import java.awt.Desktop;
+import java.io.*;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.text.DecimalFormat;
+import java.util.*;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import menu.sim.Food.MealType;
+import menu.sim.Food.FoodType;
+
+public class SimulationEngine {
+
+	// Warmup ends once the JIT has compiled nothing for this many synthetic weeks in a row
+	private static final int WARMUP_SETTLED_WEEKS = 5;
+	private static final int WARMUP_MAX_WEEKS = 200;
+	private static final long WARMUP_MAX_TIME = 30000;
+
+	// Simulator structures
+	private SimulationConfig config;
+	private PlayerWrapper playerWrapper;
+	private MealHistory mealHistory;
+	private LastEatenIndex lastEatenIndex;
+	private SatisfactionTracker satisfactionTracker;
+	private Pantry pantry;
+	private Shop shop;
+	private List<FamilyMember> familyMembers;
+	private Random random;
+	private CSVExporter csvExporter;
+	private RunArchiveWriter runArchiveWriter;
+	private HTTPServer server;
+	// Shop counts that the GUI was last sent, by food index
+	private int[] guiShopCounts = new int[FoodType.values().length];
+
+	// Simulator inputs
+	private String teamName, configName;
+	private int seed;
+	private int weeks;
+	private int numFamilyMembers;
+	private int capacity;
+	private double fpm;
+	private boolean showGUI;
+	private boolean continuousGUI;
+	private boolean exportCSV;
+
+	// Defaults
+	private boolean enablePrints;
+	private long timeout;
+	private boolean cpuTimeout;
+	private long timeBudget;
+	private boolean warmup;
+	private boolean sandbox;
+	private boolean sweepRun;
+	private boolean isWarmup = false;
+	private long warmupTime = -1;
+	private int numWarmupWeeks = 0;
+	private List<CallStatistics> warmupCallStatistics = List.of();
+	private int currentWeek = 0;
+	private String sourcePath, staticsPath, mealsPath, plannersPath, pantriesPath, satisfactionPath, archivePath;
+
+	public SimulationEngine(SimulationConfig config) {
+		this.config = config;
+		this.teamName = config.getTeamName();
+		this.configName = config.getConfigName();
+		this.seed = config.getSeed();
+		this.weeks = config.getWeeks();
+		this.numFamilyMembers = config.getNumFamilyMembers();
+		this.capacity = config.getCapacity();
+		this.fpm = config.getFPM();
+		this.showGUI = config.isGUIEnabled();
+		this.continuousGUI = config.isContinuousGUI();
+		this.exportCSV = config.isExportEnabled();
+		this.enablePrints = config.arePrintsEnabled();
+		this.timeout = config.getTimeout();
+		this.cpuTimeout = config.isCPUTimeout();
+		this.timeBudget = config.getTimeBudget();
+		this.warmup = config.isWarmupEnabled();
+		this.sandbox = config.isSandboxEnabled();
+		this.sweepRun = config.isSweepRun();
+		this.sourcePath = config.getSourcePath();
+		this.staticsPath = config.getStaticsPath();
+		this.mealsPath = config.getMealsPath();
+		this.plannersPath = config.getPlannersPath();
+		this.pantriesPath = config.getPantriesPath();
+		this.satisfactionPath = config.getSatisfactionPath();
+		this.archivePath = config.getArchivePath();
+	}
+
+	/**
+	 * Run the simulation from the first week through the last week
+	 *
+	 * @return  final scores of the simulation
+	 *
+	 */
+	public SimulationResult run() throws IOException, JSONException {
+		long startTime = System.currentTimeMillis();
+
+		setup();
+		readConfiguration();
+		if(warmup)
+			warmUp();
+		try {
+			if(exportCSV)
+				csvExporter = new CSVExporter(mealsPath, plannersPath, pantriesPath, satisfactionPath);
+			if(archivePath != null)
+				runArchiveWriter = new RunArchiveWriter(archivePath, getMemberNames(), capacity, seed);
+			runSimulation();
+		} finally {
+			if(playerWrapper != null)
+				playerWrapper.close();
+			if(csvExporter != null)
+				csvExporter.close();
+			if(runArchiveWriter != null)
+				runArchiveWriter.close();
+		}
+
+		if(server != null) {
+			Log.info("The simulation is over; the GUI is served until the simulator is stopped.");
+			try {
+				server.awaitClose();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while serving the GUI!");
+			}
+		}
+
+		return new SimulationResult(config, mealHistory, getLeastAverageSatisfaction(), getLeastSatisfiedMember(),
+				System.currentTimeMillis() - startTime, getCallStatistics(), warmupTime, warmupCallStatistics);
+	}
+
+	private void setup() {
+		mealHistory = new MealHistory();
+		lastEatenIndex = new LastEatenIndex();
+		satisfactionTracker = new SatisfactionTracker();
+		pantry = new Pantry(capacity);
+		shop = new Shop();
+		familyMembers = new ArrayList<>();
+		random = new Random(seed);
+	}
+
+	private void readConfiguration() throws FileNotFoundException, IOException {
+		if(configName != null) {
+			File configFile;
+			Scanner scanner;
+			try {
+				configFile = new File(sourcePath + File.separator + "configs" + File.separator + teamName + File.separator + configName);
+				scanner = new Scanner(configFile);
+			} catch(FileNotFoundException e) {
+                throw new FileNotFoundException("Configuration file was not found!");
+			}
+
+			try {
+				FoodType[] foodTypes = {
+						FoodType.BREAKFAST1, FoodType.BREAKFAST2, FoodType.BREAKFAST3, FoodType.BREAKFAST4, FoodType.BREAKFAST5,
+						FoodType.BREAKFAST6, FoodType.BREAKFAST7, FoodType.BREAKFAST8, FoodType.BREAKFAST9, FoodType.BREAKFAST10,
+						FoodType.LUNCH1, FoodType.LUNCH2, FoodType.LUNCH3, FoodType.LUNCH4, FoodType.LUNCH5,
+						FoodType.LUNCH6, FoodType.LUNCH7, FoodType.LUNCH8, FoodType.LUNCH9, FoodType.LUNCH10,
+						FoodType.DINNER1, FoodType.DINNER2, FoodType.DINNER3, FoodType.DINNER4, FoodType.DINNER5,
+						FoodType.DINNER6, FoodType.DINNER7, FoodType.DINNER8, FoodType.DINNER9, FoodType.DINNER10,
+						FoodType.DINNER11, FoodType.DINNER12, FoodType.DINNER13, FoodType.DINNER14, FoodType.DINNER15,
+						FoodType.DINNER16, FoodType.DINNER17, FoodType.DINNER18, FoodType.DINNER19, FoodType.DINNER20
+				};
+				
+				List<MemberName> memberNames = new ArrayList<>(Arrays.asList(MemberName.values()));
+				
+				for(int i = 0; i < numFamilyMembers; i++) {
+					if(!scanner.hasNextLine())
+		                throw new IOException("The number of lines in the configuration file should be at least the number of family members!");
+					
+					FamilyMember familyMember = new FamilyMember(memberNames.get(i % numFamilyMembers));
+					
+					String[] linePreferences = scanner.nextLine().strip().split(" ");
+					if(linePreferences.length != foodTypes.length)
+		                throw new IOException("Not all food preferences are listed for all family members!");
+					
+					for(int j = 0; j < linePreferences.length; j++) {
+						try {
+							Double preference = Double.parseDouble(linePreferences[j]);
+							if(preference < 0 || preference > 1)
+								throw new IOException("Food preferences must be between 0 and 1, inclusive.");
+							
+							familyMember.setFoodPreference(foodTypes[j], preference);
+
+						} catch(Exception e) {
+							throw new IOException("Food preferences must be decimal values.");
+						}
+					}
+					
+					familyMembers.add(familyMember);
+				}
+			} catch(Exception e) {
+				scanner.close();
+                throw new IOException("Cannot interpret one or more lines of the configuration file!");
+			}
+			
+			scanner.close();
+			
+			try {
+	        	playerWrapper = loadPlayerWrapper();
+			} catch (Exception e) {
+				Log.error("Unable to load player: {}", e.getMessage());
+				throw new IOException("Unable to load player!", e);
+			}
+		}
+	}
+
+	private void runSimulation() throws IOException, JSONException {
+		
+		if(showGUI) {
+            server = new HTTPServer(staticsPath);
+            server.publishSnapshot(getGUISnapshot());
+            Log.info("Hosting the HTTP Server on {}", server.addr());
+            if(!Desktop.isDesktopSupported())
+                Log.error("Desktop operations not supported!");
+            else if(!Desktop.getDesktop().isSupported(Desktop.Action.BROWSE))
+                Log.error("Desktop browse operation not supported!");
+            else {
+                try {
+                    Desktop.getDesktop().browse(new URI("http://localhost:" + server.port()));
+                } catch(URISyntaxException e) {}
+            }
+        }
+		
+		for(int i = 1; i <= weeks; i++) {
+			currentWeek = i;
+			
+			Planner finalPlanner = simulateWeek();
+		    
+		    if(csvExporter != null)
+		    	csvExporter.exportWeek(currentWeek, familyMembers, finalPlanner, mealHistory);
+		    if(runArchiveWriter != null)
+		    	runArchiveWriter.writeWeek(currentWeek, finalPlanner, mealHistory);
+		    
+		    // Runs of a sweep run side by side, so their summaries would interleave; the sweep reports them
+		    if(currentWeek == weeks && !sweepRun) {
+				double leastAverageSatisfaction = getLeastAverageSatisfaction();
+				MemberName leastSatisfiedMember = getLeastSatisfiedMember();
+
+				DecimalFormat satisfactionFormat = new DecimalFormat("###.####");
+				
+				Log.info("");
+				Log.info("Weeks: {}", weeks);
+				Log.info("Capacity: {}", capacity);
+				Log.info("Family members: {}", numFamilyMembers);
+				Log.info("Seed: {}", seed);
+				Log.info("Configuration: {}", configName);
+				Log.info("Average satisfaction of least satisfied member: " + satisfactionFormat.format(leastAverageSatisfaction));
+				Log.info("Least satisfied member: " + leastSatisfiedMember.name().substring(0, 1).toUpperCase() + leastSatisfiedMember.name().substring(1).toLowerCase());
+				if(warmupTime >= 0) {
+					Log.info("Warmup ({} synthetic weeks, {} ms):", numWarmupWeeks, warmupTime);
+					for(CallStatistics callStatistics : warmupCallStatistics)
+						Log.info("    {}", callStatistics);
+				}
+				if(timeBudget > 0)
+					Log.log(Log.Level.INFO, "Player calls ({} budget: {} of {} ms used):", cpuTimeout ? "CPU time" : "wall-clock time",
+							playerWrapper.getTimeBudget().getUsedTime(), timeBudget);
+				else
+					Log.info("Player calls ({} limit: {} ms):", cpuTimeout ? "CPU time" : "wall-clock time", timeout);
+				for(CallStatistics callStatistics : getCallStatistics())
+					Log.info("    {}", callStatistics);
+						
+		    }
+		    
+		    if(showGUI)
+		    	updateGUI(getGUIWeek(currentWeek));
+		}
+	}
+		
+	/**
+	 * Simulate the current week: restock the shop, ask the player to stock the pantry and plan
+	 * meals, and update the meal history and satisfactions
+	 *
+	 * @return  final planner of the week
+	 *
+	 */
+	private Planner simulateWeek() {
+		updateShop();
+
+		int numEmptySlots = pantry.getNumEmptySlots();
+		ShoppingList shoppingList = playerWrapper.stockPantry(
+				currentWeek,
+				numEmptySlots,
+				snapshotFamilyMembers(),
+				pantry.clone(),
+				mealHistory.snapshot()
+		);
+
+		if(!Player.hasValidShoppingList(shoppingList, numEmptySlots)) {
+			if(!isWarmup)
+				Log.error("The shopping list from week {} is invalid! The pantry is not being restocked.", currentWeek);
+			shoppingList = new ShoppingList();
+		}
+		updatePantry(shoppingList);
+
+		Planner planner = playerWrapper.planMeals(
+				currentWeek,
+				snapshotFamilyMembers(),
+				pantry.clone(),
+				mealHistory.snapshot()
+		);
+
+		List<MemberName> memberNames = getMemberNames();
+		Planner finalPlanner = planner.forMembers(memberNames);
+
+		if(!Player.hasValidPlanner(finalPlanner, pantry)) {
+			if(!isWarmup)
+				Log.error("The planner from week {} is invalid! Family members starve this week.", currentWeek);
+			finalPlanner = new Planner(memberNames);
+		}
+
+		updateAssignedMeals(finalPlanner);
+		updateMealHistory(currentWeek, shoppingList, finalPlanner);
+		updateSatisfactions(currentWeek, finalPlanner);
+		updateAverageSatisfactions(currentWeek);
+
+		return finalPlanner;
+	}
+
+	/**
+	 * Warm up the JIT by simulating synthetic weeks with throwaway copies of the player
+	 *
+	 * The synthetic weeks are simulated by a throwaway engine with the same configuration and a
+	 * different seed, so the player's code runs on realistic shops and histories while nothing
+	 * it does reaches this run. A new copy of the player starts over after the last week. Warmup
+	 * ends once no compilation time has been added for several weeks in a row, or after a maximum
+	 * number of weeks or amount of time.
+	 *
+	 */
+	private void warmUp() throws IOException {
+		Log.log(getProgressLevel(), "Warming up team {}'s player...", teamName);
+		CompilationMXBean compilationMXBean = ManagementFactory.getCompilationMXBean();
+		boolean canMonitorCompilation = compilationMXBean != null && compilationMXBean.isCompilationTimeMonitoringSupported();
+
+		SimulationConfig warmupConfig = config.copy();
+		warmupConfig.setSeed(seed + 1);
+		warmupConfig.setTimeBudget(0);
+		SimulationEngine warmupEngine = new SimulationEngine(warmupConfig);
+		warmupEngine.isWarmup = true;
+
+		CallStatistics stockPantryStatistics = new CallStatistics("stockPantry");
+		CallStatistics planMealsStatistics = new CallStatistics("planMeals");
+		long startTime = System.nanoTime();
+		long lastCompilationTime = canMonitorCompilation ? compilationMXBean.getTotalCompilationTime() : 0;
+		int numSettledWeeks = 0;
+		try {
+			while(numSettledWeeks < WARMUP_SETTLED_WEEKS && numWarmupWeeks < WARMUP_MAX_WEEKS
+					&& System.nanoTime() - startTime < WARMUP_MAX_TIME * 1000000) {
+				if(warmupEngine.playerWrapper == null || warmupEngine.currentWeek == weeks) {
+					warmupEngine.closeWarmupPlayer(stockPantryStatistics, planMealsStatistics);
+					warmupEngine.setup();
+					warmupEngine.readConfiguration();
+					warmupEngine.currentWeek = 0;
+				}
+				warmupEngine.currentWeek++;
+				warmupEngine.simulateWeek();
+				numWarmupWeeks++;
+
+				if(canMonitorCompilation) {
+					long compilationTime = compilationMXBean.getTotalCompilationTime();
+					numSettledWeeks = compilationTime == lastCompilationTime ? numSettledWeeks + 1 : 0;
+					lastCompilationTime = compilationTime;
+				}
+			}
+		} finally {
+			warmupEngine.closeWarmupPlayer(stockPantryStatistics, planMealsStatistics);
+		}
+
+		warmupTime = (System.nanoTime() - startTime) / 1000000;
+		warmupCallStatistics = List.of(stockPantryStatistics, planMealsStatistics);
+		Log.log(getProgressLevel(), "Warmed up in {} synthetic weeks and {} ms.", numWarmupWeeks, warmupTime);
+	}
+
+	private void closeWarmupPlayer(CallStatistics stockPantryStatistics, CallStatistics planMealsStatistics) {
+		if(playerWrapper == null)
+			return;
+		playerWrapper.close();
+		stockPantryStatistics.recordAll(playerWrapper.getStockPantryStatistics());
+		planMealsStatistics.recordAll(playerWrapper.getPlanMealsStatistics());
+		playerWrapper = null;
+	}
+
+	private void updateShop() {
+		List<FoodType> breakfastItems = Food.getFoodTypes(MealType.BREAKFAST);
+		List<FoodType> lunchItems = Food.getFoodTypes(MealType.LUNCH);
+		List<FoodType> dinnerItems = Food.getFoodTypes(MealType.DINNER);
+
+		shop.clearInventory();
+
+		int halfSize = breakfastItems.size() / 2;
+		for(int i = 0; i < halfSize; i++) {
+			int index = random.nextInt(breakfastItems.size());
+			shop.setCount(breakfastItems.get(index), capacity);
+			breakfastItems.remove(index);
+		}
+
+		halfSize = lunchItems.size() / 2;
+		for(int i = 0; i < halfSize; i++) {
+			int index = random.nextInt(lunchItems.size());
+			shop.setCount(lunchItems.get(index), capacity);
+			lunchItems.remove(index);
+		}
+
+		halfSize = dinnerItems.size() / 2;
+		for(int i = 0; i < halfSize; i++) {
+			int index = random.nextInt(dinnerItems.size());
+			shop.setCount(dinnerItems.get(index), capacity);
+			dinnerItems.remove(index);
+		}
+	}
+	
+	private void updatePantry(ShoppingList shoppingList) {
+		Map<MealType, List<FoodType>> fullOrderMap = shoppingList.getFullOrderMap();
+		Map<MealType, Integer> allLimitsMap = shoppingList.getAllLimitsMap();
+		
+		for(MealType mealType : MealType.values()) {
+			if(!fullOrderMap.containsKey(mealType)) {
+				Log.trace("No meals ordered for {}.", mealType);
+				continue;
+			}
+			if(!allLimitsMap.containsKey(mealType)) {
+				Log.trace("No order limit set for {}.", mealType);
+				continue;
+			}
+			
+			// Fill each segment of the same food with one bulk add, up to the order limit
+			FoodOrder order = FoodOrder.of(fullOrderMap.get(mealType));
+			int limit = allLimitsMap.get(mealType);
+			int numMealsFilled = 0;
+			for(int segment = 0; segment < order.getNumSegments() && numMealsFilled < limit; segment++) {
+				FoodType mealOrdered = order.getSegmentFood(segment);
+				if(shop.containsMeal(mealOrdered)) {
+					int numMeals = Math.min(order.getSegmentQuantity(segment), limit - numMealsFilled);
+					pantry.addMeals(mealOrdered, numMeals);
+					numMealsFilled += numMeals;
+				}
+			}
+		}
+	}
+	
+	private void updateMealHistory(Integer week, ShoppingList shoppingList, Planner planner) {
+		mealHistory.addShoppingList(week, shoppingList);
+		mealHistory.addPlanner(week, planner);
+		mealHistory.addPantry(week, pantry);
+
+		// The planner also records the daily family meals of the week
+		Map<Day, Map<MemberName, Map<MealType, FoodType>>> plan = planner.getPlan();
+		for(FamilyMember familyMember : familyMembers) {
+			MemberName memberName = familyMember.getName();
+			for(Day day : Day.values()) {
+				Map<MealType, FoodType> mealMap = plan.get(day).get(memberName);
+				for(MealType mealType : mealMap.keySet())
+					if(mealMap.get(mealType) != null)
+						lastEatenIndex.record((week - 1) * 7 + day.ordinal() + 1, memberName, mealType, mealMap.get(mealType));
+			}
+		}
+	}
+
+	private List<MemberName> getMemberNames() {
+		List<MemberName> memberNames = new ArrayList<>();
+		for(FamilyMember familyMember : familyMembers)
+			memberNames.add(familyMember.getName());
+		return memberNames;
+	}
+
+	private void updateAssignedMeals(Planner planner) {
+		for(FamilyMember familyMember : familyMembers) {
+			MemberName memberName = familyMember.getName();
+			familyMember.resetMealMap();
+			for(Day day : Day.values()) {
+				if(!planner.hasMember(day, memberName)) {
+					Log.trace("No meals planned for family member {} on day {}.", memberName, day);
+					continue;
+				}
+				
+				for(MealType mealType : MealType.values()) {
+					if(!planner.hasMeal(day, memberName, mealType))
+						continue;
+					FoodType chosenMeal = planner.getMeal(day, memberName, mealType);
+					familyMember.assignMeal(day, mealType, chosenMeal);
+					pantry.removeMealFromInventory(chosenMeal);
+				}
+			}
+		}
+	}
+	
+	private void updateSatisfactions(Integer week, Planner planner) {
+		Day[] days = Day.values();
+		
+		double[] dinnerKScalingFactors = new double[days.length];
+		FoodType[] dinnersChosen = new FoodType[days.length];
+		for(Day day : days) {
+			int numMembersNotEatingDinner = 0;
+			for(FamilyMember familyMember : familyMembers) {
+				FoodType dinner = planner.getMeal(day, familyMember.getName(), MealType.DINNER);
+				if(dinner == null)
+					numMembersNotEatingDinner++;
+				else if(dinnersChosen[day.ordinal()] == null)
+					dinnersChosen[day.ordinal()] = dinner;
+			}
+			dinnerKScalingFactors[day.ordinal()] = (numFamilyMembers - numMembersNotEatingDinner) * 1.0 / numFamilyMembers;
+		}
+		
+		for(FamilyMember familyMember : familyMembers) {
+			Map<FoodType, Double> foodPreferenceMap = familyMember.getFoodPreferenceMap();
+			MemberName memberName = familyMember.getName();
+
+			double totalBreakfastSatisfaction = 0.0;
+			for(Day day : days) {
+				FoodType chosenMeal = planner.getMeal(day, memberName, MealType.BREAKFAST);
+				if(chosenMeal == null)
+					continue;
+
+				totalBreakfastSatisfaction += foodPreferenceMap.get(chosenMeal);
+			}
+
+			double totalLunchSatisfaction = 0.0;
+			for(int i = 0; i < days.length; i++) {
+				FoodType chosenMeal = planner.getMeal(days[i], memberName, MealType.LUNCH);
+				if(chosenMeal == null)
+					continue;
+				
+				double scalingFactor = getSatisfactionScalingFactor(memberName, week - 1, i + 1, MealType.LUNCH, chosenMeal);
+				if(scalingFactor == -1)
+					totalLunchSatisfaction += foodPreferenceMap.get(chosenMeal);
+				else
+					totalLunchSatisfaction += foodPreferenceMap.get(chosenMeal) * scalingFactor;					
+			}
+						
+			double totalDinnerSatisfaction = 0.0;
+			for(int i = 0; i < days.length; i++) {
+				FoodType chosenMeal = dinnersChosen[i];
+				if(chosenMeal == null)
+					continue;
+								
+				double scalingFactor = getSatisfactionScalingFactor(memberName, week - 1, i + 1, MealType.DINNER, chosenMeal) * 
+						dinnerKScalingFactors[i];
+				totalDinnerSatisfaction += foodPreferenceMap.get(chosenMeal) * scalingFactor;
+			}
+			
+			double totalSatisfaction = totalBreakfastSatisfaction + totalLunchSatisfaction + totalDinnerSatisfaction;
+			familyMember.setSatisfaction(totalSatisfaction);
+
+			mealHistory.addSatisfaction(week, familyMember.getName(), totalSatisfaction);		    
+		}
+	}
+	
+	private double getSatisfactionScalingFactor(MemberName memberName, Integer week, Integer dayOffset, MealType mealType, FoodType foodType) {
+		int day = week * 7 + dayOffset;
+		int lastEatenDay = lastEatenIndex.getLastEatenDay(memberName, mealType, foodType, day);
+		if(lastEatenDay == 0)
+			return 1;
+		double totalDays = day - lastEatenDay;
+		return totalDays / (totalDays + 1);
+	}
+	
+	private void updateAverageSatisfactions(Integer week) {
+		satisfactionTracker.addWeek(familyMembers);
+		for(FamilyMember familyMember : familyMembers) {
+			MemberName memberName = familyMember.getName();
+			mealHistory.addAverageSatisfaction(week, memberName, satisfactionTracker.getAverageSatisfaction(memberName));
+		}
+	}
+	
+	private Double getLeastAverageSatisfaction() {
+		return satisfactionTracker.getLeastAverageSatisfaction();
+	}
+
+	private MemberName getLeastSatisfiedMember() {
+		return satisfactionTracker.getLeastSatisfiedMember();
+	}
+	
+	private List<FamilyMember> snapshotFamilyMembers() {
+		List<FamilyMember> familyMembersSnapshot = new ArrayList<>();
+		for(FamilyMember familyMember : familyMembers)
+			familyMembersSnapshot.add(familyMember.clone());
+		return familyMembersSnapshot;
+	}
+	
+	private List<CallStatistics> getCallStatistics() {
+		if(playerWrapper == null)
+			return List.of();
+		return List.of(playerWrapper.getStockPantryStatistics(), playerWrapper.getPlanMealsStatistics());
+	}
+
+	/**
+	 * Level of the progress messages of the run, which only a single run reports by default
+	 */
+	private Log.Level getProgressLevel() {
+		return sweepRun ? Log.Level.DEBUG : Log.Level.INFO;
+	}
+
+	private PlayerWrapper loadPlayerWrapper() throws Exception {
+		if(isWarmup)
+			return new PlayerWrapper(loadPlayer(), teamName + " (warmup)", timeout, cpuTimeout);
+
+		Log.log(getProgressLevel(), "Loading team {}'s player...", teamName);
+
+		Player player = loadPlayer();
+        if(player == null) {
+            Log.error("Cannot load team {}'s player!", teamName);
+            throw new IOException("Cannot load team " + teamName + "'s player!");
+        }
+
+        return new PlayerWrapper(player, teamName, timeout, cpuTimeout, timeBudget > 0 ? new TimeBudget(timeBudget) : null);
+    }
+	
+	private Player loadPlayer() throws IOException, ClassNotFoundException, InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException, NoSuchMethodException, SecurityException {
+        Class<?> rawClass = loadPlayerClass(sourcePath, teamName);
+        if(sandbox)
+        	return new SandboxedPlayer(teamName, weeks, numFamilyMembers, capacity, seed, enablePrints);
+        Class<?>[] classArgs = new Class<?>[]{Integer.class, Integer.class, Integer.class, Integer.class, SimPrinter.class};
+        
+        return (Player) rawClass.getDeclaredConstructor(classArgs).newInstance(weeks, numFamilyMembers, capacity, seed, new SimPrinter(enablePrints));
+    }
+
+	// Engines running side by side share the compiled player, so only one of them compiles it
+	private static synchronized Class<?> loadPlayerClass(String sourcePath, String teamName) throws IOException, ClassNotFoundException {
+		String playerPackagePath = sourcePath + File.separator + "menu" + File.separator + teamName;
+        Set<File> playerFiles = getFilesInDirectory(playerPackagePath, ".java");
+		String simPath = sourcePath + File.separator + "menu" + File.separator + "sim";
+        Set<File> simFiles = getFilesInDirectory(simPath, ".java");
+
+        File classFile = new File(playerPackagePath + File.separator + "Player.class");
+
+        long classModified = classFile.exists() ? classFile.lastModified() : -1;
+        if(classModified < 0 || classModified < lastModified(playerFiles) || classModified < lastModified(simFiles)) {
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            if(compiler == null)
+                throw new IOException("Cannot find the Java compiler!");
+
+            StandardJavaFileManager manager = compiler.getStandardFileManager(null, null, null);
+            Log.info("Compiling for team {}'s player...", teamName);
+
+            if(!compiler.getTask(null, manager, null, null, null, manager.getJavaFileObjectsFromFiles(playerFiles)).call())
+                throw new IOException("The compilation failed!");
+            
+            classFile = new File(playerPackagePath + File.separator + "Player.class");
+            if(!classFile.exists())
+                throw new FileNotFoundException("The class file is missing!");
+        }
+
+        ClassLoader loader = SimulationEngine.class.getClassLoader();
+        if(loader == null)
+            throw new IOException("Cannot find the Java class loader!");
+
+        return loader.loadClass("menu." + teamName + ".Player");
+    }
+
+	private static long lastModified(Iterable<File> files) {
+        long lastDate = 0;
+        for(File file : files) {
+            long date = file.lastModified();
+            if(lastDate < date)
+                lastDate = date;
+        }
+        return lastDate;
+    }
+	
+	private static Set<File> getFilesInDirectory(String path, String extension) {
+		Set<File> files = new HashSet<File>();
+        Set<File> previousDirectories = new HashSet<File>();
+        previousDirectories.add(new File(path));
+        do {
+        	Set<File> nextDirectories = new HashSet<File>();
+            for(File previousDirectory : previousDirectories)
+                for(File file : previousDirectory.listFiles()) {
+                    if(!file.canRead())
+                    	continue;
+                    
+                    if(file.isDirectory())
+                        nextDirectories.add(file);
+                    else if(file.getPath().endsWith(extension))
+                        files.add(file);
+                }
+            previousDirectories = nextDirectories;
+        } while(!previousDirectories.isEmpty());
+        
+        return files;
+	}
+	
+	private void updateGUI(JSONObject weekJSONObj) throws JSONException {
+		if(server == null)
+			return;
+
+		// A browser that missed the week before gets the full counts instead of the changes
+		String changes = weekJSONObj.toString();
+		weekJSONObj.put("pantry", getCountsJSONArray(pantry));
+		weekJSONObj.put("shop", getCountsJSONArray(shop));
+
+		// The server thread answers the browser; the simulation does not wait for it
+		server.publishData(currentWeek, changes, weekJSONObj.toString());
+	}
+
+	private static JSONArray getCountsJSONArray(Inventory inventory) {
+		JSONArray countsJSONArray = new JSONArray();
+		for(FoodType foodType : FoodType.values())
+			countsJSONArray.put(inventory.getNumAvailableMeals(foodType));
+		return countsJSONArray;
+	}
+	
+	/**
+	 * Get the part of the GUI state that does not change during the run
+	 *
+	 * Foods, meal types and family members are listed once here, and the state of each week
+	 * refers to them by index.
+	 *
+	 * @return  GUI snapshot
+	 *
+	 */
+	private String getGUISnapshot() throws JSONException {
+		JSONObject jsonObj = new JSONObject();
+		jsonObj.put("refresh", 60000.0 / fpm);
+		jsonObj.put("totalWeeks", weeks);
+		jsonObj.put("continuous", continuousGUI);
+		jsonObj.put("numMembers", numFamilyMembers);
+		jsonObj.put("capacity", capacity);
+		jsonObj.put("days", Day.values());
+		jsonObj.put("mealTypes", MealType.values());
+
+		JSONArray foodsJSONArray = new JSONArray();
+		JSONArray foodMealTypesJSONArray = new JSONArray();
+		for(FoodType foodType : FoodType.values()) {
+			foodsJSONArray.put(foodType.name());
+			foodMealTypesJSONArray.put(Food.getMealType(foodType).ordinal());
+		}
+		jsonObj.put("foods", foodsJSONArray);
+		jsonObj.put("foodMealTypes", foodMealTypesJSONArray);
+
+		JSONArray membersJSONArray = new JSONArray();
+		JSONArray foodPreferencesJSONArray = new JSONArray();
+		for(FamilyMember familyMember : familyMembers) {
+			membersJSONArray.put(familyMember.getName().name());
+			JSONArray memberPreferencesJSONArray = new JSONArray();
+			for(FoodType foodType : FoodType.values())
+				memberPreferencesJSONArray.put(familyMember.getFoodPreference(foodType));
+			foodPreferencesJSONArray.put(memberPreferencesJSONArray);
+		}
+		jsonObj.put("members", membersJSONArray);
+		jsonObj.put("foodPreferences", foodPreferencesJSONArray);
+
+		return jsonObj.toString();
+	}
+
+	/**
+	 * Get the GUI state of a week, relative to the GUI snapshot
+	 *
+	 * The pantry and the shop are sent as the changes of their counts from the week before, by
+	 * food index, for the foods whose count changed. Meals are listed by member index and then
+	 * by day and meal type, with -1 for a meal that was not assigned.
+	 *
+	 * @param week  week of the state
+	 * @return      GUI state of the week
+	 *
+	 */
+	private JSONObject getGUIWeek(Integer week) throws JSONException {
+		DecimalFormat satisfactionFormat = new DecimalFormat("###.####");
+
+		JSONObject jsonObj = new JSONObject();
+		jsonObj.put("currentWeek", week);
+		jsonObj.put("numEmptySlots", pantry.getNumEmptySlots());
+		jsonObj.put("leastAverageSatisfaction", satisfactionFormat.format(getLeastAverageSatisfaction()));
+		jsonObj.put("leastSatisfiedMember", getLeastSatisfiedMember());
+
+		Pantry oldPantry = mealHistory.getAllPantries().containsKey(week - 1) ? mealHistory.getPantry(week - 1) : null;
+		JSONObject pantryChangesJSONObj = new JSONObject();
+		JSONObject shopChangesJSONObj = new JSONObject();
+		for(FoodType foodType : FoodType.values()) {
+			int count = pantry.getNumAvailableMeals(foodType);
+			int oldCount = oldPantry == null ? 0 : oldPantry.getNumAvailableMeals(foodType);
+			if(count != oldCount)
+				pantryChangesJSONObj.put(String.valueOf(foodType.ordinal()), count - oldCount);
+			int shopCount = shop.getNumAvailableMeals(foodType);
+			if(shopCount != guiShopCounts[foodType.ordinal()])
+				shopChangesJSONObj.put(String.valueOf(foodType.ordinal()), shopCount - guiShopCounts[foodType.ordinal()]);
+			guiShopCounts[foodType.ordinal()] = shopCount;
+		}
+		jsonObj.put("pantryChanges", pantryChangesJSONObj);
+		jsonObj.put("shopChanges", shopChangesJSONObj);
+
+		JSONArray mealsJSONArray = new JSONArray();
+		JSONArray satisfactionsJSONArray = new JSONArray();
+		JSONArray averageSatisfactionsJSONArray = new JSONArray();
+		for(FamilyMember familyMember : familyMembers) {
+			JSONArray memberMealsJSONArray = new JSONArray();
+			for(Day day : Day.values()) {
+				// A member has no meals on a day that nothing was planned for them
+				Map<MealType, FoodType> dayMealMap = familyMember.getAssignedDayMealMap(day);
+				for(MealType mealType : MealType.values()) {
+					FoodType foodType = dayMealMap == null ? null : dayMealMap.get(mealType);
+					memberMealsJSONArray.put(foodType == null ? -1 : foodType.ordinal());
+				}
+			}
+			mealsJSONArray.put(memberMealsJSONArray);
+			satisfactionsJSONArray.put(satisfactionFormat.format(familyMember.getSatisfaction()));
+			averageSatisfactionsJSONArray.put(satisfactionFormat.format(satisfactionTracker.getAverageSatisfaction(familyMember.getName())));
+		}
+		jsonObj.put("meals", mealsJSONArray);
+		jsonObj.put("satisfactions", satisfactionsJSONArray);
+		jsonObj.put("averageSatisfactions", averageSatisfactionsJSONArray);
+
+		return jsonObj;
+	}
+	
+}
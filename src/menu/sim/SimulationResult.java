@@ -0,0 +1,76 @@
+package menu.sim;
+
+import java.util.List;
+
+public class SimulationResult {
+
+	private SimulationConfig config;
+	private MealHistory mealHistory;
+	private double leastAverageSatisfaction;
+	private MemberName leastSatisfiedMember;
+	private long elapsedTime;
+	private List<CallStatistics> callStatistics;
+	private long warmupTime;
+	private List<CallStatistics> warmupCallStatistics;
+
+	public SimulationResult(SimulationConfig config, MealHistory mealHistory, double leastAverageSatisfaction, MemberName leastSatisfiedMember, long elapsedTime,
+			List<CallStatistics> callStatistics, long warmupTime, List<CallStatistics> warmupCallStatistics) {
+		this.config = config;
+		this.mealHistory = mealHistory;
+		this.leastAverageSatisfaction = leastAverageSatisfaction;
+		this.leastSatisfiedMember = leastSatisfiedMember;
+		this.elapsedTime = elapsedTime;
+		this.callStatistics = callStatistics;
+		this.warmupTime = warmupTime;
+		this.warmupCallStatistics = warmupCallStatistics;
+	}
+
+	public SimulationConfig getConfig() {
+		return config;
+	}
+
+	public int getSeed() {
+		return config.getSeed();
+	}
+
+	public MealHistory getMealHistory() {
+		return mealHistory;
+	}
+
+	public double getLeastAverageSatisfaction() {
+		return leastAverageSatisfaction;
+	}
+
+	public MemberName getLeastSatisfiedMember() {
+		return leastSatisfiedMember;
+	}
+
+	/**
+	 * Wall-clock time spent inside {@link SimulationEngine#run()}, in milliseconds
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * Latencies of the player's calls, one entry per player method; after a warmup, these are
+	 * the steady-state latencies
+	 */
+	public List<CallStatistics> getCallStatistics() {
+		return callStatistics;
+	}
+
+	/**
+	 * Wall-clock time of the JIT warmup before the run, in milliseconds, or -1 if there was none
+	 */
+	public long getWarmupTime() {
+		return warmupTime;
+	}
+
+	/**
+	 * Latencies of the throwaway players' calls during the warmup, one entry per player method
+	 */
+	public List<CallStatistics> getWarmupCallStatistics() {
+		return warmupCallStatistics;
+	}
+}
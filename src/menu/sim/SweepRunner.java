@@ -0,0 +1,107 @@
+package menu.sim;
+
+import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SweepRunner {
+
+	private static final double[] REPORTED_PERCENTILES = {5, 25, 50, 75, 95};
+
+	private SimulationConfig config;
+	private List<Integer> seeds;
+	private int numThreads;
+
+	/**
+	 * Sweep runner constructor
+	 *
+	 * @param config      simulation inputs shared by every run
+	 * @param seeds       seeds to simulate, one run per seed
+	 * @param numThreads  number of runs simulated at the same time
+	 *
+	 */
+	public SweepRunner(SimulationConfig config, List<Integer> seeds, int numThreads) {
+		if(numThreads < 1)
+			throw new IllegalArgumentException("The number of sweep threads must be positive!");
+		this.config = config;
+		this.seeds = seeds;
+		this.numThreads = numThreads;
+	}
+
+	public SweepStatistics run() throws InterruptedException {
+		long startTime = System.currentTimeMillis();
+
+		Log.info("Loading team {}'s player for {} seeds...", config.getTeamName(), seeds.size());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, Math.max(1, seeds.size())));
+		CompletionService<SimulationResult> completionService = new ExecutorCompletionService<>(executor);
+		// Results are taken as soon as their run finishes, so only the scores outlive the runs
+		Map<Future<SimulationResult>, Integer> runningSeeds = new HashMap<>();
+		for(Integer seed : seeds) {
+			SimulationConfig runConfig = config.copy();
+			runConfig.setSeed(seed);
+			runConfig.setSweepRun(true);
+			runningSeeds.put(completionService.submit(() -> new SimulationEngine(runConfig).run()), seed);
+		}
+		executor.shutdown();
+
+		DecimalFormat satisfactionFormat = new DecimalFormat("###.####");
+
+		double[] scores = new double[seeds.size()];
+		int numScores = 0, numFailedRuns = 0;
+		for(int i = 0; i < seeds.size(); i++) {
+			Future<SimulationResult> future = completionService.take();
+			int seed = runningSeeds.remove(future);
+			try {
+				SimulationResult result = future.get();
+				double score = result.getLeastAverageSatisfaction();
+				long elapsedTime = result.getElapsedTime();
+				scores[numScores++] = score;
+				Log.debug(() -> "Seed " + seed + ": " + satisfactionFormat.format(score) + " in " + elapsedTime + " ms");
+			} catch(ExecutionException e) {
+				numFailedRuns++;
+				Log.error("Seed {} failed: {}", seed, e.getCause());
+			}
+		}
+
+		double[] completedScores = new double[numScores];
+		System.arraycopy(scores, 0, completedScores, 0, numScores);
+		return new SweepStatistics(completedScores, numFailedRuns, System.currentTimeMillis() - startTime);
+	}
+
+	public void report(SweepStatistics statistics) {
+		DecimalFormat satisfactionFormat = new DecimalFormat("###.####");
+		DecimalFormat throughputFormat = new DecimalFormat("###.##");
+
+		report("");
+		report("Team: " + config.getTeamName());
+		report("Configuration: " + config.getConfigName());
+		report("Weeks: " + config.getWeeks());
+		report("Capacity: " + config.getCapacity());
+		report("Family members: " + config.getNumFamilyMembers());
+		report("Seeds: " + seeds.size() + " (" + statistics.getNumFailedRuns() + " failed)");
+		report("Threads: " + numThreads);
+		report("Average satisfaction of least satisfied member:");
+		report("    mean: " + satisfactionFormat.format(statistics.getMean()));
+		report("    stddev: " + satisfactionFormat.format(statistics.getStandardDeviation()));
+		report("    min: " + satisfactionFormat.format(statistics.getMin()));
+		report("    max: " + satisfactionFormat.format(statistics.getMax()));
+		for(double percentile : REPORTED_PERCENTILES)
+			report("    p" + (int) percentile + ": " + satisfactionFormat.format(statistics.getPercentile(percentile)));
+		report("Elapsed time: " + statistics.getElapsedTime() + " ms");
+		report("Throughput: " + throughputFormat.format(statistics.getThroughput()) + " runs/s");
+	}
+
+	private void report(String content) {
+		if(Log.isEnabled(Log.Level.INFO))
+			Log.info(content);
+		else
+			System.out.println(content);
+	}
+}
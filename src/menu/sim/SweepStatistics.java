@@ -0,0 +1,95 @@
+package menu.sim;
+
+import java.util.Arrays;
+
+public class SweepStatistics {
+
+	private double[] sortedScores;
+	private double mean, standardDeviation;
+	private int numFailedRuns;
+	private long elapsedTime;
+
+	/**
+	 * Sweep statistics constructor
+	 *
+	 * @param scores         average satisfaction of the least satisfied member for each completed run
+	 * @param numFailedRuns  number of runs that ended with an exception
+	 * @param elapsedTime    wall-clock time of the whole sweep, in milliseconds
+	 *
+	 */
+	public SweepStatistics(double[] scores, int numFailedRuns, long elapsedTime) {
+		this.sortedScores = Arrays.copyOf(scores, scores.length);
+		Arrays.sort(this.sortedScores);
+		this.numFailedRuns = numFailedRuns;
+		this.elapsedTime = elapsedTime;
+
+		double totalScore = 0.0;
+		for(double score : sortedScores)
+			totalScore += score;
+		mean = sortedScores.length == 0 ? Double.NaN : totalScore / sortedScores.length;
+
+		double totalSquaredDeviation = 0.0;
+		for(double score : sortedScores)
+			totalSquaredDeviation += (score - mean) * (score - mean);
+		standardDeviation = sortedScores.length < 2 ? 0.0 : Math.sqrt(totalSquaredDeviation / (sortedScores.length - 1));
+	}
+
+	public int getNumRuns() {
+		return sortedScores.length;
+	}
+
+	public int getNumFailedRuns() {
+		return numFailedRuns;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Sample standard deviation of the scores
+	 */
+	public double getStandardDeviation() {
+		return standardDeviation;
+	}
+
+	public double getMin() {
+		return sortedScores.length == 0 ? Double.NaN : sortedScores[0];
+	}
+
+	public double getMax() {
+		return sortedScores.length == 0 ? Double.NaN : sortedScores[sortedScores.length - 1];
+	}
+
+	/**
+	 * Percentile of the scores, interpolating linearly between the closest ranks
+	 *
+	 * @param percentile  percentile between 0 and 100, inclusive
+	 * @return            score at the given percentile
+	 *
+	 */
+	public double getPercentile(double percentile) {
+		if(percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentiles must be between 0 and 100, inclusive.");
+		if(sortedScores.length == 0)
+			return Double.NaN;
+
+		double rank = percentile / 100 * (sortedScores.length - 1);
+		int lowerRank = (int) Math.floor(rank);
+		int upperRank = (int) Math.ceil(rank);
+		return sortedScores[lowerRank] + (rank - lowerRank) * (sortedScores[upperRank] - sortedScores[lowerRank]);
+	}
+
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * Number of runs (completed or failed) finished per second of wall-clock time
+	 */
+	public double getThroughput() {
+		if(elapsedTime <= 0)
+			return Double.NaN;
+		return (sortedScores.length + numFailedRuns) * 1000.0 / elapsedTime;
+	}
+}
@@ -0,0 +1,98 @@
+package menu.sim;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Time pool shared by all of a player's calls in a run.
+ *
+ * Every stockPantry and planMeals call is charged the time it used, and may use at most the
+ * time that remains; once the pool is empty, the player is no longer called. Time is counted
+ * the same way as the timeout, either as wall-clock time or as CPU time. While a call is in
+ * progress, its time so far is already deducted from the remaining budget, so a player can
+ * check the budget during a call and stop in time.
+ */
+public class TimeBudget {
+
+	private final long totalTime;
+	private volatile long usedTime = 0;
+	private volatile LongSupplier currentCallTime;
+
+	/**
+	 * Time budget constructor
+	 *
+	 * @param totalTime  time available for the whole run, in milliseconds
+	 *
+	 */
+	public TimeBudget(long totalTime) {
+		if(totalTime <= 0)
+			throw new IllegalArgumentException("The time budget must be positive!");
+		this.totalTime = TimeUnit.MILLISECONDS.toNanos(totalTime);
+	}
+
+	private TimeBudget(long totalTime, TimeUnit unit) {
+		this.totalTime = unit.toNanos(totalTime);
+	}
+
+	/**
+	 * Get a time budget with the time left in another one, which may already be used up
+	 *
+	 * @param remainingTime  time left, in nanoseconds
+	 * @return               time budget
+	 *
+	 */
+	static TimeBudget ofRemainingNanos(long remainingTime) {
+		return new TimeBudget(Math.max(remainingTime, 0), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Time available for the whole run, in milliseconds
+	 */
+	public long getTotalTime() {
+		return TimeUnit.NANOSECONDS.toMillis(totalTime);
+	}
+
+	/**
+	 * Time used so far, including the call in progress, in milliseconds
+	 */
+	public long getUsedTime() {
+		return TimeUnit.NANOSECONDS.toMillis(getUsedNanos());
+	}
+
+	/**
+	 * Time left for the rest of the run, after the call in progress, in milliseconds
+	 */
+	public long getRemainingTime() {
+		return TimeUnit.NANOSECONDS.toMillis(getRemainingNanos());
+	}
+
+	long getRemainingNanos() {
+		return Math.max(totalTime - getUsedNanos(), 0);
+	}
+
+	/**
+	 * Start charging a call
+	 *
+	 * @param currentCallTime  time used so far by the call, in nanoseconds
+	 *
+	 */
+	void startCall(LongSupplier currentCallTime) {
+		this.currentCallTime = currentCallTime;
+	}
+
+	/**
+	 * Finish charging a call
+	 *
+	 * @param callTime  time used by the call, in nanoseconds
+	 *
+	 */
+	void endCall(long callTime) {
+		usedTime += Math.max(callTime, 0);
+		currentCallTime = null;
+	}
+
+	private long getUsedNanos() {
+		LongSupplier callTime = currentCallTime;
+		return usedTime + (callTime == null ? 0 : callTime.getAsLong());
+	}
+}
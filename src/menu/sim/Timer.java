@@ -1,81 +1,248 @@
 package menu.sim;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class Timer extends Thread {
+/**
+ * Runs calls on a worker thread and imposes a timeout on each of them.
+ *
+ * Each call is submitted to a single-thread executor as a cancellable task. A call that times
+ * out is cancelled, which interrupts its worker; because a task that ignores the interrupt
+ * would keep the worker busy, the executor is then abandoned and replaced by a new one, so the
+ * next call starts on a fresh worker instead of queueing behind the runaway task. Calls are
+ * timed with {@link System#nanoTime()}, and the CPU time and bytes allocated by the worker
+ * thread during each call are read from the {@link ThreadMXBean}.
+ *
+ * The timeout applies to wall-clock time by default. When it applies to CPU time instead, only
+ * the worker thread's own CPU time is counted, and a call is still cancelled once its wall-clock
+ * time exceeds {@link #CPU_TIMEOUT_WALL_FACTOR} times the timeout, so a blocked call cannot
+ * hang the simulation.
+ */
+public class Timer {
 
-	private boolean started = false, completed = false;
-	private Callable <?> task = null;
-	private Exception error = null;
-	private Object result = null;
-	private long startTime, endTime;
+	public static final int CPU_TIMEOUT_WALL_FACTOR = 10;
 
-	public <T> void callStart(Callable <T> task) {
-		if(!isAlive())
-			throw new IllegalStateException();
-		if(task == null)
-			throw new IllegalArgumentException();
-		this.task = task;
-		
-		synchronized(this) {
-			started = true;
-			this.startTime = System.currentTimeMillis();
-			notify();
-		}
+	private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+	private static final com.sun.management.ThreadMXBean allocationMXBean =
+			threadMXBean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) threadMXBean : null;
+	private static final boolean isCpuTimeSupported = threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+	private static final boolean isAllocationSupported = allocationMXBean != null && allocationMXBean.isThreadAllocatedMemorySupported()
+			&& allocationMXBean.isThreadAllocatedMemoryEnabled();
+	private static final AtomicInteger numWorkers = new AtomicInteger();
+
+	private String name;
+	private boolean isCpuTimeout;
+	private ExecutorService executor;
+	private long elapsedTime, cpuTime, allocatedBytes;
+	private volatile CallUsage currentUsage;
+	private volatile long currentStartTime;
+	private int numReplacedWorkers = 0;
+
+	/**
+	 * Timer constructor
+	 *
+	 * @param name          name of the worker threads
+	 * @param isCpuTimeout  whether the timeout applies to CPU time rather than wall-clock time
+	 *
+	 */
+	public Timer(String name, boolean isCpuTimeout) {
+		if(isCpuTimeout && !isCpuTimeSupported)
+			throw new UnsupportedOperationException("Thread CPU time is not supported by this JVM!");
+		this.name = name;
+		this.isCpuTimeout = isCpuTimeout;
+		this.executor = createExecutor();
 	}
 
-	public <T> T callWait(long timeout) throws Exception {
+	/**
+	 * Run a call on the worker thread and wait for its result
+	 *
+	 * @param task     call to run
+	 * @param timeout  maximum time to wait for the result, in milliseconds; 0 to wait without limit
+	 * @return         result of the call
+	 * @throws         TimeoutException if the call did not finish in time; it is then cancelled
+	 * @throws         Exception thrown by the call, or an {@link ExecutionException} wrapping an error
+	 *
+	 */
+	public <T> T call(Callable<T> task, long timeout) throws Exception {
+		if(task == null)
+			throw new IllegalArgumentException("The task is missing!");
 		if(timeout < 0)
-			throw new IllegalArgumentException();
-		
-		synchronized(this) {
-			if(completed == false)
-				try {
-					wait(timeout);
-				} catch(InterruptedException e) {}
+			throw new IllegalArgumentException("The timeout cannot be negative!");
+
+		CallUsage usage = new CallUsage();
+		long startTime = System.nanoTime();
+		currentStartTime = startTime;
+		currentUsage = usage;
+		Future<T> future = executor.submit(() -> {
+			usage.start();
+			try {
+				return task.call();
+			} finally {
+				usage.stop();
+			}
+		});
+		try {
+			if(timeout == 0)
+				return future.get();
+			if(isCpuTimeout)
+				return getWithinCpuTime(future, usage, startTime, TimeUnit.MILLISECONDS.toNanos(timeout));
+			return future.get(timeout, TimeUnit.MILLISECONDS);
+		} catch(TimeoutException e) {
+			future.cancel(true);
+			replaceWorker();
+			throw e;
+		} catch(InterruptedException e) {
+			future.cancel(true);
+			replaceWorker();
+			Thread.currentThread().interrupt();
+			throw e;
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		} finally {
+			elapsedTime = System.nanoTime() - startTime;
+			cpuTime = usage.getCpuTime();
+			allocatedBytes = usage.getAllocatedBytes();
+			currentUsage = null;
 		}
-		
-		if(completed == false)
-			throw new TimeoutException();
-		completed = false;
-		
-		if(error != null)
-			throw error;
-		
-		@SuppressWarnings("unchecked")
-		T resultT = (T) result;
-		
-		return resultT;
 	}
 
-	public void run() {
+	/**
+	 * Time used so far by the call in progress, counted the same way as the timeout
+	 *
+	 * @return  CPU time or wall-clock time of the call in progress, in nanoseconds, or 0 if there is none
+	 *
+	 */
+	public long getCurrentCallTime() {
+		CallUsage usage = currentUsage;
+		if(usage == null)
+			return 0;
+		return isCpuTimeout ? Math.max(usage.getCpuTime(), 0) : System.nanoTime() - currentStartTime;
+	}
+
+	/**
+	 * Time used by the last call, counted the same way as the timeout, in nanoseconds
+	 */
+	public long getCallTime() {
+		return isCpuTimeout ? cpuTime : elapsedTime;
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Wall-clock time of the last call, including any time spent waiting for a timeout, in nanoseconds
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * CPU time used by the worker thread during the last call, in nanoseconds, or -1 if not supported
+	 */
+	public long getCpuTime() {
+		return cpuTime;
+	}
+
+	/**
+	 * Bytes allocated by the worker thread during the last call, or -1 if not supported
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Number of workers abandoned because a call on them timed out or was interrupted
+	 */
+	public int getNumReplacedWorkers() {
+		return numReplacedWorkers;
+	}
+
+	/**
+	 * Wait for a call until the worker has used the timeout in CPU time
+	 *
+	 * A thread cannot use more CPU time than the wall-clock time that passes, so each wait lasts
+	 * for the CPU time remaining and the CPU time is only checked between waits.
+	 *
+	 */
+	private <T> T getWithinCpuTime(Future<T> future, CallUsage usage, long startTime, long timeout) throws Exception {
+		long wallTimeout = CPU_TIMEOUT_WALL_FACTOR * timeout;
 		while(true) {
-			synchronized(this) {
-				if(started == false)
-					try {
-						wait();
-					} catch(InterruptedException e) {}
-			}
-			
-			started = false;
-			error = null;
-			
+			long remainingCpuTime = timeout - Math.max(usage.getCpuTime(), 0);
+			long remainingWallTime = wallTimeout - (System.nanoTime() - startTime);
+			if(remainingCpuTime <= 0 || remainingWallTime <= 0)
+				throw new TimeoutException();
 			try {
-				result = task.call();
-			} catch(Exception e) {
-				error = e;
-			}
-			
-			synchronized(this) {
-				this.endTime = System.currentTimeMillis();
-				completed = true;
-				notify();
+				return future.get(Math.min(remainingCpuTime, remainingWallTime), TimeUnit.NANOSECONDS);
+			} catch(TimeoutException e) {
+				// Check the CPU time used so far before waiting again
 			}
 		}
 	}
-	
-	public long getElapsedTime() {
-		return endTime - startTime;
+
+	private void replaceWorker() {
+		executor.shutdownNow();
+		executor = createExecutor();
+		numReplacedWorkers++;
+	}
+
+	private ExecutorService createExecutor() {
+		return Executors.newSingleThreadExecutor(task -> {
+			Thread worker = new Thread(task, name + "-" + numWorkers.incrementAndGet());
+			worker.setDaemon(true);
+			return worker;
+		});
+	}
+
+	/**
+	 * CPU time and allocation of one call, measured on the worker thread; while the call is
+	 * running, they are read from the worker thread by id.
+	 */
+	private static class CallUsage {
+
+		private volatile long threadId = -1;
+		private volatile long startCpuTime, startAllocatedBytes;
+		private volatile long cpuTime = -1, allocatedBytes = -1;
+		private volatile boolean stopped = false;
+
+		void start() {
+			if(isCpuTimeSupported)
+				startCpuTime = threadMXBean.getCurrentThreadCpuTime();
+			if(isAllocationSupported)
+				startAllocatedBytes = allocationMXBean.getCurrentThreadAllocatedBytes();
+			threadId = Thread.currentThread().getId();
+		}
+
+		void stop() {
+			if(isCpuTimeSupported)
+				cpuTime = threadMXBean.getCurrentThreadCpuTime() - startCpuTime;
+			if(isAllocationSupported)
+				allocatedBytes = allocationMXBean.getCurrentThreadAllocatedBytes() - startAllocatedBytes;
+			stopped = true;
+		}
+
+		long getCpuTime() {
+			if(stopped || threadId < 0 || !isCpuTimeSupported)
+				return cpuTime;
+			long currentCpuTime = threadMXBean.getThreadCpuTime(threadId);
+			return currentCpuTime < 0 ? -1 : currentCpuTime - startCpuTime;
+		}
+
+		long getAllocatedBytes() {
+			if(stopped || threadId < 0 || !isAllocationSupported)
+				return allocatedBytes;
+			long currentAllocatedBytes = allocationMXBean.getThreadAllocatedBytes(threadId);
+			return currentAllocatedBytes < 0 ? -1 : currentAllocatedBytes - startAllocatedBytes;
+		}
 	}
-}
\ No newline at end of file
+}